@@ -2,6 +2,7 @@ package de.yamayaki.cesium;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedReader;
@@ -13,16 +14,41 @@ import java.nio.file.Path;
 
 public class CesiumConfig {
     private final Option<Boolean> log_map_grows = new Option<>(false, "Log when a database map is being resized.");
+    private final Option<Integer> map_grow_min_mb = new Option<>(64, "Smallest step (in MB) by which a database map is grown. Each step is as large as the current map, bounded by this value and map_grow_max_mb.");
+    private final Option<Integer> map_grow_max_mb = new Option<>(2048, "Largest step (in MB) by which a database map is grown at once.");
     private final Option<Boolean> show_debug_info = new Option<>(false, "Display information on the debug screen.");
     private final Option<Integer> zstd_compression_level = new Option<>(8, "The zstd library supports compression levels from 1 to 22. The lower the level, the faster the speed (at the cost of compression).");
     private final Option<Boolean> zstd_use_dictionary = new Option<>(true, "The compression ratio achievable can be highly improved using the built-in dictionary.");
+    private final Option<Integer> compression_threads = new Option<>(0, "Number of background threads compressing saved data. 0 uses a quarter of the available processors.");
     private final Option<Boolean> disable_compression = new Option<>(false, "HERE BE DRAGONS!! Forcefully disable all compression. A different database is used for uncompressed data, you can't have compressed and uncompressed worlds at the same time. Compressed worlds have to be reimported.");
+    private final Option<Durability> durability = new Option<>(Durability.STRICT, "How commits are written to disk. strict: every commit is synced, nothing is lost. relaxed: the metadata of a commit is not synced, a system crash or power loss may undo the last commit. periodic: commits are not synced, data is synced in the background every sync_interval seconds and on shutdown, a system crash or power loss may undo the saves of that period. A crash of the game alone never loses committed data.");
+    private final Option<Integer> sync_interval = new Option<>(5, "Seconds between background syncs when using the periodic durability mode.");
+    private final Option<Integer> commit_max_delay = new Option<>(1000, "Longest time (in milliseconds) a change may wait before it is committed. Changes that are not committed yet are lost if the game crashes.");
+    private final Option<Integer> commit_max_size = new Option<>(16384, "Amount of pending changes (in KB) that triggers a commit before commit_max_delay has passed.");
+    private final Option<Integer> commit_max_entries = new Option<>(4096, "Number of pending entries that triggers a commit before commit_max_delay has passed.");
+    private final Option<Integer> backlog_soft_limit = new Option<>(64, "Amount of uncommitted changes (in MB, uncompressed) that triggers a commit right away. Counted per world dimension or player data instance, summed over all of its databases.");
+    private final Option<Integer> backlog_hard_limit = new Option<>(256, "Amount of uncommitted changes (in MB, uncompressed, counted like backlog_soft_limit) at which saving threads have to commit the changes themselves before they may add more. Keeps memory usage bounded when commits fall behind.");
+    private final Option<Integer> commit_slice_size = new Option<>(0, "Largest amount of changes (in MB) written by a single transaction. Larger commits are split into several transactions, so other saves are not blocked for long. Each transaction is saved entirely or not at all, but a crash may keep only the first part of a split commit. 0 never splits commits.");
+    private final Option<Integer> commit_slice_entries = new Option<>(0, "Largest number of changes written by a single transaction, see commit_slice_size. 0 never splits commits.");
+    private final Option<Integer> commit_pipeline_depth = new Option<>(2, "Number of commits that may be in flight at once. While one commit is written, the changes for the next one are already prepared.");
+    private final Option<Integer> max_readers = new Option<>(126, "Maximum number of read transactions kept per database. Idle transactions are reset and reused for later lookups, threads exceeding this limit wait for a free one.");
+    private final Option<Integer> chunk_cache_size = new Option<>(64, "Memory (in MB) used per dimension to cache decompressed chunk data, so chunks which are unloaded and loaded again are not read and decompressed again. 0 disables the cache.");
+    private final Option<Integer> poi_cache_size = new Option<>(4, "Memory (in MB) used per dimension to cache point of interest data. 0 disables the cache.");
+    private final Option<Integer> entity_cache_size = new Option<>(16, "Memory (in MB) used per dimension to cache entity data. 0 disables the cache.");
     private final Option<Boolean> force_save_after_tick = new Option<>(false, "HERE BE DRAGONS!! Forces the (internal) to save all player and chunk data after each server tick. This option can slow down your server.");
 
     public boolean logMapGrows() {
         return this.log_map_grows.value;
     }
 
+    public long mapGrowMinBytes() {
+        return this.map_grow_min_mb.value * 1024L * 1024L;
+    }
+
+    public long mapGrowMaxBytes() {
+        return this.map_grow_max_mb.value * 1024L * 1024L;
+    }
+
     public boolean showDebugInfo() {
         return this.show_debug_info.value;
     }
@@ -35,14 +61,84 @@ public class CesiumConfig {
         return this.zstd_use_dictionary.value;
     }
 
+    public int compressionThreads() {
+        final int threads = this.compression_threads.value;
+
+        return threads > 0 ? threads : Math.max(Runtime.getRuntime().availableProcessors() / 4, 1);
+    }
+
     public boolean isUncompressed() {
         return this.disable_compression.value;
     }
 
+    public Durability durability() {
+        return this.durability.value != null ? this.durability.value : Durability.STRICT;
+    }
+
+    public int syncInterval() {
+        return Math.max(this.sync_interval.value, 1);
+    }
+
+    public long commitMaxDelay() {
+        return Math.max(this.commit_max_delay.value, 0);
+    }
+
+    public long commitMaxBytes() {
+        return this.commit_max_size.value * 1024L;
+    }
+
+    public long commitMaxEntries() {
+        return this.commit_max_entries.value;
+    }
+
+    public long backlogSoftLimit() {
+        return this.backlog_soft_limit.value * 1024L * 1024L;
+    }
+
+    public long backlogHardLimit() {
+        return Math.max(this.backlog_hard_limit.value * 1024L * 1024L, this.backlogSoftLimit());
+    }
+
+    public long commitSliceMaxBytes() {
+        return this.commit_slice_size.value > 0 ? this.commit_slice_size.value * 1024L * 1024L : Long.MAX_VALUE;
+    }
+
+    public long commitSliceMaxEntries() {
+        return this.commit_slice_entries.value > 0 ? this.commit_slice_entries.value : Long.MAX_VALUE;
+    }
+
+    public int commitPipelineDepth() {
+        return Math.max(this.commit_pipeline_depth.value, 1);
+    }
+
+    public int maxReaders() {
+        return this.max_readers.value;
+    }
+
+    public long cacheBytes(final String database) {
+        final int size = switch (database) {
+            case "chunks" -> this.chunk_cache_size.value;
+            case "poi" -> this.poi_cache_size.value;
+            case "entity" -> this.entity_cache_size.value;
+            default -> 0;
+        };
+
+        return Math.max(size, 0) * 1024L * 1024L;
+    }
+
     public boolean saveAfterTick() {
         return this.force_save_after_tick.value;
     }
 
+    public enum Durability {
+        @SerializedName("strict")
+        STRICT,
+        @SerializedName("relaxed")
+        RELAXED,
+        @SerializedName("periodic")
+        PERIODIC
+    }
+
     @SuppressWarnings({"unused", "FieldMayBeFinal", "FieldCanBeLocal"})
     private static class Option<T> {
         private T value;
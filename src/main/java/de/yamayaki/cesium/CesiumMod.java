@@ -14,7 +14,9 @@ import org.slf4j.Logger;
 import java.nio.file.Path;
 
 public class CesiumMod implements ModInitializer {
+    // Metadata is committed before the chunks it describes, see ChunkDatabaseSpec
     private static final DatabaseSpec<?, ?>[] worldSpecs = new DatabaseSpec[]{
+            WorldDatabaseSpecs.CHUNK_METADATA,
             WorldDatabaseSpecs.CHUNK_DATA,
             WorldDatabaseSpecs.POI,
             WorldDatabaseSpecs.ENTITY
@@ -39,7 +41,11 @@ public class CesiumMod implements ModInitializer {
     }
 
     public static @NotNull IDBInstance openWorldDB(@NotNull final Path dimensionPath) {
-        return openDB(dimensionPath, "chunks", worldSpecs);
+        return openWorldDB(dimensionPath, "chunks");
+    }
+
+    public static @NotNull IDBInstance openWorldDB(@NotNull final Path dimensionPath, @NotNull final String dbName) {
+        return openDB(dimensionPath, dbName, worldSpecs);
     }
 
     public static @NotNull IDBInstance openPlayerDB(@NotNull final Path worldPath) {
@@ -51,6 +57,10 @@ public class CesiumMod implements ModInitializer {
         return new LMDBInstance(dbBasePath.resolve(dbName + getFileEnding()), dbSpecs, cesiumLogger, config());
     }
 
+    public static DatabaseSpec<?, ?>[] worldSpecs() {
+        return worldSpecs;
+    }
+
     public static CesiumConfig config() {
         if (cesiumConfig == null) {
             throw new RuntimeException("Config is not yet available, did you do something silly?");
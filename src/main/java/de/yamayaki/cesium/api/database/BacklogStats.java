@@ -0,0 +1,11 @@
+package de.yamayaki.cesium.api.database;
+
+/**
+ * Changes which were added but not committed yet. Pending changes are waiting for the next commit, committing
+ * changes are part of a commit which is still in flight. Off-heap bytes are reserved for their compressed values.
+ */
+public record BacklogStats(long pendingBytes, long pendingEntries, long committingBytes, int committingSnapshots, long stalls, long offHeapBytes) {
+    public long totalBytes() {
+        return this.pendingBytes + this.committingBytes;
+    }
+}
@@ -0,0 +1,4 @@
+package de.yamayaki.cesium.api.database;
+
+public record CacheStats(long hits, long misses, long evictions, long sizeBytes, long maxBytes) {
+}
@@ -0,0 +1,36 @@
+package de.yamayaki.cesium.api.database;
+
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * Spec for databases keyed by chunk position. These can be accessed with packed positions (see
+ * {@link ChunkPos#toLong()}) instead of {@link ChunkPos} instances.
+ */
+public class ChunkDatabaseSpec<V> extends DatabaseSpec<ChunkPos, V> {
+    private final ChunkDatabaseSpec<ChunkMetadata> metadata;
+
+    public ChunkDatabaseSpec(final String name, final Class<V> value, final int initialSize) {
+        this(name, value, initialSize, true, null);
+    }
+
+    public ChunkDatabaseSpec(final String name, final Class<V> value, final int initialSize, final boolean compressed) {
+        this(name, value, initialSize, compressed, null);
+    }
+
+    /**
+     * Values of this database are described by records in the metadata database. Records are added by the caller
+     * before their values, the stored size of a value is filled in when it is committed.
+     */
+    public ChunkDatabaseSpec(final String name, final Class<V> value, final int initialSize, final ChunkDatabaseSpec<ChunkMetadata> metadata) {
+        this(name, value, initialSize, true, metadata);
+    }
+
+    private ChunkDatabaseSpec(final String name, final Class<V> value, final int initialSize, final boolean compressed, final ChunkDatabaseSpec<ChunkMetadata> metadata) {
+        super(name, ChunkPos.class, value, initialSize, compressed);
+        this.metadata = metadata;
+    }
+
+    public ChunkDatabaseSpec<ChunkMetadata> getMetadata() {
+        return this.metadata;
+    }
+}
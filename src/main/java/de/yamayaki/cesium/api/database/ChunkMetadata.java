@@ -0,0 +1,25 @@
+package de.yamayaki.cesium.api.database;
+
+import net.minecraft.nbt.CompoundTag;
+
+/**
+ * Summary of a stored chunk, written alongside it. The raw size is the length of the serialized chunk before
+ * compression, the stored size its length in the database. The stored size is only known once the chunk is
+ * compressed and is filled in when the chunk is committed.
+ */
+public record ChunkMetadata(String status, int dataVersion, long inhabitedTime, long lastUpdate, int rawSize, int storedSize) {
+    public static ChunkMetadata of(final CompoundTag tag, final int rawSize) {
+        return of(tag, rawSize, 0);
+    }
+
+    public static ChunkMetadata of(final CompoundTag tag, final int rawSize, final int storedSize) {
+        return new ChunkMetadata(
+                tag.getString("Status"),
+                tag.getInt("DataVersion"),
+                tag.getLong("InhabitedTime"),
+                tag.getLong("LastUpdate"),
+                rawSize,
+                storedSize
+        );
+    }
+}
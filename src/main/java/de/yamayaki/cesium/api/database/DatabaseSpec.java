@@ -7,12 +7,22 @@ public class DatabaseSpec<K, V> {
     private final Class<V> value;
 
     private final int initialSize;
+    private final boolean compressed;
 
     public DatabaseSpec(final String name, final Class<K> key, final Class<V> value, final int initialSize) {
+        this(name, key, value, initialSize, true);
+    }
+
+    /**
+     * Values of databases that are not compressed are stored as serialized, which suits small records that are
+     * read in large numbers.
+     */
+    public DatabaseSpec(final String name, final Class<K> key, final Class<V> value, final int initialSize, final boolean compressed) {
         this.name = name;
         this.key = key;
         this.value = value;
         this.initialSize = initialSize;
+        this.compressed = compressed;
     }
 
     public Class<K> getKeyType() {
@@ -31,6 +41,10 @@ public class DatabaseSpec<K, V> {
         return this.initialSize;
     }
 
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+
     @Override
     public String toString() {
         return String.format("DatabaseSpec{key=%s, value=%s}@%s", this.key.getName(), this.value.getName(), this.hashCode());
@@ -0,0 +1,21 @@
+package de.yamayaki.cesium.api.database;
+
+import net.minecraft.world.level.ChunkPos;
+
+public interface IChunkKVDatabase<V> extends IKVDatabase<ChunkPos, V> {
+    V getValue(final long chunkPos);
+
+    byte[] getBytes(final long chunkPos);
+
+    <T> T visitBytes(final long chunkPos, final IValueVisitor<T> visitor);
+
+    /**
+     * Returns the counters of the value cache, or null if caching is disabled for this database.
+     */
+    CacheStats getCacheStats();
+
+    /**
+     * Iterates over the packed positions of all stored chunks.
+     */
+    ICloseableLongIterator getLongIterator();
+}
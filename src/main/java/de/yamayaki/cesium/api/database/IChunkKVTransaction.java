@@ -0,0 +1,9 @@
+package de.yamayaki.cesium.api.database;
+
+import net.minecraft.world.level.ChunkPos;
+
+public interface IChunkKVTransaction<V> extends IKVTransaction<ChunkPos, V> {
+    void add(final long chunkPos, final V value);
+
+    void addBytes(final long chunkPos, final byte[] value);
+}
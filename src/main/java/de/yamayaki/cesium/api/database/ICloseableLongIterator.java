@@ -0,0 +1,6 @@
+package de.yamayaki.cesium.api.database;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
+public interface ICloseableLongIterator extends LongIterator, AutoCloseable {
+}
@@ -4,6 +4,7 @@ import org.lmdbjava.Stat;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public interface IDBInstance {
@@ -11,10 +12,40 @@ public interface IDBInstance {
 
     <K, V> IKVTransaction<K, V> getTransaction(final DatabaseSpec<K, V> spec);
 
+    <V> IChunkKVDatabase<V> getDatabase(final ChunkDatabaseSpec<V> spec);
+
+    <V> IChunkKVTransaction<V> getTransaction(final ChunkDatabaseSpec<V> spec);
+
+    /**
+     * Runs changes to several databases which have to be committed together, e.g. a chunk and its metadata record.
+     * No snapshot of the pending changes is taken while they run.
+     */
+    void addAtomically(final Runnable changes);
+
     void flushChanges();
 
+    /**
+     * Commits the pending changes on a background thread. The future completes once the changes are durable, which
+     * includes syncing them to disk if commits are not synced already (see the durability setting).
+     */
+    CompletableFuture<Void> flushAsync();
+
+    /**
+     * Returns whether the pending changes should be committed now, see {@link #flushChanges()}.
+     */
+    boolean commitDue();
+
+    /**
+     * Makes the pending changes due for the next scheduled commit.
+     */
+    void requestCommit();
+
     List<Stat> getStats();
 
+    BacklogStats getBacklog();
+
+    KeyFormat keyFormat();
+
     void createCopy(final Path copyPath);
 
     ReentrantReadWriteLock getLock();
@@ -3,11 +3,33 @@ package de.yamayaki.cesium.api.database;
 import de.yamayaki.cesium.api.io.ICompressor;
 import de.yamayaki.cesium.api.io.ISerializer;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface IKVDatabase<K, V> {
+    /**
+     * Returns the latest value for the key, including changes which were added to the transaction but not
+     * committed yet. Iterators only see committed data.
+     */
     V getValue(final K key);
 
     byte[] getBytes(final K key);
 
+    /**
+     * Looks up all keys within a single read transaction. Results are returned in the iteration order of keys,
+     * missing values are returned as null.
+     */
+    List<V> getMany(final Collection<K> keys);
+
+    List<byte[]> getManyBytes(final Collection<K> keys);
+
+    /**
+     * Passes the stored (compressed) value to the visitor without copying it out of the memory map.
+     * The buffer is only valid until the visitor returns. Returns null if no value is stored.
+     */
+    <T> T visitBytes(final K key, final IValueVisitor<T> visitor);
+
     <S> void scan(final K key, final S scanner);
 
     ISerializer<K> getKeySerializer();
@@ -17,4 +39,14 @@ public interface IKVDatabase<K, V> {
     ICompressor getCompressor();
 
     ICloseableIterator<K> getIterator();
+
+    ICloseableIterator<Map.Entry<K, byte[]>> getRange(final List<KeyRange<K>> ranges);
+
+    /**
+     * Iterates over all stored chunks within the given (inclusive) chunk coordinates. Only supported by databases
+     * using a spatial key serializer.
+     */
+    ICloseableIterator<Map.Entry<K, byte[]>> getArea(final int minX, final int minZ, final int maxX, final int maxZ);
+
+    ICloseableIterator<Map.Entry<K, byte[]>> getRegion(final int regionX, final int regionZ);
 }
@@ -1,7 +1,15 @@
 package de.yamayaki.cesium.api.database;
 
+import org.agrona.DirectBuffer;
+
 public interface IKVTransaction<K, V> {
     void add(final K key, final V value);
 
     void addBytes(final K key, final byte[] value);
+
+    /**
+     * Adds a value as it is stored, e.g. passed to {@link IKVDatabase#visitBytes(Object, IValueVisitor)} by a
+     * database of the same spec. It is copied and written without compressing it again.
+     */
+    void addStored(final K key, final DirectBuffer value);
 }
@@ -0,0 +1,10 @@
+package de.yamayaki.cesium.api.database;
+
+import org.agrona.DirectBuffer;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface IValueVisitor<T> {
+    T visit(final DirectBuffer value) throws IOException;
+}
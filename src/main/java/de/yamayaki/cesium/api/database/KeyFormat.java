@@ -0,0 +1,35 @@
+package de.yamayaki.cesium.api.database;
+
+public enum KeyFormat {
+    /**
+     * Chunk positions stored as signed big-endian x, then z.
+     */
+    LEGACY(1),
+
+    /**
+     * Chunk positions ordered by region, then in Morton order within the region.
+     */
+    REGION_MORTON(2);
+
+    public static final KeyFormat CURRENT = REGION_MORTON;
+
+    private final int id;
+
+    KeyFormat(final int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return this.id;
+    }
+
+    public static KeyFormat byId(final int id) {
+        for (final KeyFormat format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+
+        throw new RuntimeException("Unsupported key format " + id + ", was the database written by a newer version?");
+    }
+}
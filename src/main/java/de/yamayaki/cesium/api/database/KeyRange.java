@@ -0,0 +1,7 @@
+package de.yamayaki.cesium.api.database;
+
+/**
+ * An inclusive range of keys, ordered by their serialized form.
+ */
+public record KeyRange<K>(K from, K to) {
+}
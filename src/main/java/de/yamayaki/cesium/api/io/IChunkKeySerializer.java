@@ -0,0 +1,12 @@
+package de.yamayaki.cesium.api.io;
+
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * Serializer for chunk positions whose keys fit into a single big-endian long.
+ */
+public interface IChunkKeySerializer extends ISpatialSerializer<ChunkPos> {
+    long encode(final long chunkPos);
+
+    long decode(final long key);
+}
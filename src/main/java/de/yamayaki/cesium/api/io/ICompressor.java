@@ -1,7 +1,25 @@
 package de.yamayaki.cesium.api.io;
 
+import org.agrona.DirectBuffer;
+
+import java.io.InputStream;
+
 public interface ICompressor {
     byte[] compress(final byte[] input);
 
+    /**
+     * Compresses a range of the input into a buffer owned by the calling thread. The returned buffer is only valid
+     * until the next call on the same thread.
+     */
+    DirectBuffer compress(final byte[] input, final int offset, final int length);
+
     byte[] decompress(final byte[] input);
+
+    byte[] decompress(final DirectBuffer input);
+
+    /**
+     * Returns a stream over the decompressed input, owned by the calling thread. It is only valid while the input is
+     * and until the next call on the same thread. Closing it early skips decompressing the rest.
+     */
+    InputStream decompressStream(final DirectBuffer input);
 }
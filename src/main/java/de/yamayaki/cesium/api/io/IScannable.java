@@ -1,7 +1,16 @@
 package de.yamayaki.cesium.api.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 public interface IScannable<T> {
     void scan(byte[] input, T scanner) throws IOException;
+
+    /**
+     * Scans a value while it is read from the stream. Implementations stop reading once the scanner is done, so the
+     * rest of the value is skipped.
+     */
+    default void scan(InputStream input, T scanner) throws IOException {
+        this.scan(input.readAllBytes(), scanner);
+    }
 }
@@ -1,9 +1,30 @@
 package de.yamayaki.cesium.api.io;
 
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 public interface ISerializer<T> {
     byte[] serialize(T input) throws IOException;
 
     T deserialize(byte[] input) throws IOException;
+
+    /**
+     * Serializes into a buffer owned by the calling thread. The returned buffer is only valid until the next call on
+     * the same thread.
+     */
+    default DirectBuffer serializeToBuffer(T input) throws IOException {
+        return new UnsafeBuffer(this.serialize(input));
+    }
+
+    default T deserialize(byte[] input, int offset, int length) throws IOException {
+        return this.deserialize(Arrays.copyOfRange(input, offset, offset + length));
+    }
+
+    default T deserialize(InputStream input) throws IOException {
+        return this.deserialize(input.readAllBytes());
+    }
 }
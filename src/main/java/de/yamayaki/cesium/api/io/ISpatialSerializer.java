@@ -0,0 +1,16 @@
+package de.yamayaki.cesium.api.io;
+
+import de.yamayaki.cesium.api.database.KeyRange;
+
+import java.util.List;
+
+public interface ISpatialSerializer<T> extends ISerializer<T> {
+    /**
+     * Returns the key ranges covering all positions within the given (inclusive) chunk coordinates.
+     */
+    List<KeyRange<T>> area(final int minX, final int minZ, final int maxX, final int maxZ);
+
+    default List<KeyRange<T>> region(final int regionX, final int regionZ) {
+        return this.area(regionX << 5, regionZ << 5, (regionX << 5) + 31, (regionZ << 5) + 31);
+    }
+}
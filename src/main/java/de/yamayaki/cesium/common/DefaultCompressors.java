@@ -2,6 +2,11 @@ package de.yamayaki.cesium.common;
 
 import de.yamayaki.cesium.api.io.ICompressor;
 import de.yamayaki.cesium.common.zstd.ZSTDCompressor;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.io.DirectBufferInputStream;
+
+import java.io.InputStream;
 
 public class DefaultCompressors {
     public static final ICompressor NONE = new ICompressor() {
@@ -10,10 +15,28 @@ public class DefaultCompressors {
             return input;
         }
 
+        @Override
+        public DirectBuffer compress(byte[] input, int offset, int length) {
+            return new UnsafeBuffer(input, offset, length);
+        }
+
         @Override
         public byte[] decompress(byte[] input) {
             return input;
         }
+
+        @Override
+        public byte[] decompress(DirectBuffer input) {
+            final byte[] dst = new byte[input.capacity()];
+            input.getBytes(0, dst);
+
+            return dst;
+        }
+
+        @Override
+        public InputStream decompressStream(DirectBuffer input) {
+            return new DirectBufferInputStream(input);
+        }
     };
 
     public static final ICompressor ZSTD = new ZSTDCompressor();
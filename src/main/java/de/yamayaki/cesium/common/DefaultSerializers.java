@@ -1,8 +1,12 @@
 package de.yamayaki.cesium.common;
 
+import de.yamayaki.cesium.api.database.ChunkMetadata;
+import de.yamayaki.cesium.api.database.KeyFormat;
 import de.yamayaki.cesium.api.io.ISerializer;
+import de.yamayaki.cesium.common.serializer.ChunkMetadataSerializer;
 import de.yamayaki.cesium.common.serializer.ChunkPosSerializer;
 import de.yamayaki.cesium.common.serializer.CompoundTagSerializer;
+import de.yamayaki.cesium.common.serializer.RegionChunkPosSerializer;
 import de.yamayaki.cesium.common.serializer.StringSerializer;
 import de.yamayaki.cesium.common.serializer.UUIDSerializer;
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceMap;
@@ -14,13 +18,30 @@ import java.util.UUID;
 
 public class DefaultSerializers {
     private static final Reference2ReferenceMap<Class<?>, ISerializer<?>> serializers = new Reference2ReferenceOpenHashMap<>();
+    private static final Reference2ReferenceMap<Class<?>, ISerializer<?>> legacyKeySerializers = new Reference2ReferenceOpenHashMap<>();
 
     static {
         serializers.put(UUID.class, new UUIDSerializer());
-        serializers.put(ChunkPos.class, new ChunkPosSerializer());
+        serializers.put(ChunkPos.class, new RegionChunkPosSerializer());
 
         serializers.put(CompoundTag.class, new CompoundTagSerializer());
         serializers.put(String.class, new StringSerializer());
+        serializers.put(ChunkMetadata.class, new ChunkMetadataSerializer());
+
+        legacyKeySerializers.put(ChunkPos.class, new ChunkPosSerializer());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K> ISerializer<K> getKeySerializer(Class<K> clazz, KeyFormat format) {
+        if (format == KeyFormat.LEGACY) {
+            ISerializer<?> serializer = DefaultSerializers.legacyKeySerializers.get(clazz);
+
+            if (serializer != null) {
+                return (ISerializer<K>) serializer;
+            }
+        }
+
+        return getSerializer(clazz);
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,39 @@
+package de.yamayaki.cesium.common.buffer;
+
+import org.agrona.BufferUtil;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import static org.agrona.UnsafeAccess.UNSAFE;
+
+/**
+ * A direct {@link ByteBuffer} over memory it does not own, for APIs which only accept direct byte buffers. The same
+ * buffer is moved to other memory on every use, like lmdbjava does for its own buffers, so no object is allocated
+ * and nothing is copied.
+ */
+public final class ByteBufferView {
+    private static final long CAPACITY_FIELD_OFFSET;
+
+    static {
+        try {
+            CAPACITY_FIELD_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("capacity"));
+        } catch (final NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Its own memory is never accessed, it is released by the cleaner as usual
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+
+    /**
+     * Points the view at the given memory. The returned buffer is only valid while the memory is and until the view
+     * is moved again.
+     */
+    public ByteBuffer wrap(final long address, final int length) {
+        UNSAFE.putLong(this.buffer, BufferUtil.BYTE_BUFFER_ADDRESS_FIELD_OFFSET, address);
+        UNSAFE.putInt(this.buffer, CAPACITY_FIELD_OFFSET, length);
+
+        return this.buffer.clear();
+    }
+}
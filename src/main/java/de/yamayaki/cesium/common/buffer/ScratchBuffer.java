@@ -0,0 +1,20 @@
+package de.yamayaki.cesium.common.buffer;
+
+public class ScratchBuffer {
+    private final ThreadLocal<byte[]> array;
+
+    public ScratchBuffer(final int initialSize) {
+        this.array = ThreadLocal.withInitial(() -> new byte[initialSize]);
+    }
+
+    public byte[] get(final int minCapacity) {
+        byte[] array = this.array.get();
+
+        if (array.length < minCapacity) {
+            array = new byte[Math.max(minCapacity, array.length * 2)];
+            this.array.set(array);
+        }
+
+        return array;
+    }
+}
@@ -0,0 +1,100 @@
+package de.yamayaki.cesium.common.buffer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Off-heap storage for short-lived values. Values are copied into large direct slabs, a slab is reused once all
+ * values stored in it were freed. Values too large to share a slab stay on the heap.
+ */
+public class SlabArena {
+    private static final int SLAB_SIZE = 1024 * 1024;
+    private static final int MAX_SLAB_VALUE = SLAB_SIZE / 4;
+    private static final int MAX_IDLE_SLABS = 64;
+
+    private final ArrayDeque<Slab> idle = new ArrayDeque<>();
+    private Slab current = null;
+
+    private long reservedBytes = 0L;
+
+    public synchronized Allocation store(final DirectBuffer value) {
+        final int length = value.capacity();
+
+        if (length > MAX_SLAB_VALUE) {
+            final byte[] copy = new byte[length];
+            value.getBytes(0, copy);
+
+            return new Allocation(null, new UnsafeBuffer(copy));
+        }
+
+        if (this.current == null || SLAB_SIZE - this.current.position < length) {
+            this.replaceCurrent();
+        }
+
+        final Slab slab = this.current;
+        final UnsafeBuffer buffer = new UnsafeBuffer(slab.buffer, slab.position, length);
+        buffer.putBytes(0, value, 0, length);
+
+        slab.position += length;
+        slab.references++;
+
+        return new Allocation(slab, buffer);
+    }
+
+    public synchronized void free(final Allocation allocation) {
+        final Slab slab = allocation.slab;
+
+        if (slab != null && --slab.references == 0 && slab != this.current) {
+            this.recycle(slab);
+        }
+    }
+
+    /**
+     * Returns the amount of off-heap memory held by slabs, including idle ones.
+     */
+    public synchronized long reservedBytes() {
+        return this.reservedBytes;
+    }
+
+    private void replaceCurrent() {
+        final Slab previous = this.current;
+
+        this.current = this.idle.pollFirst();
+
+        if (this.current == null) {
+            this.current = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE));
+            this.reservedBytes += SLAB_SIZE;
+        }
+
+        if (previous != null && previous.references == 0) {
+            this.recycle(previous);
+        }
+    }
+
+    private void recycle(final Slab slab) {
+        if (this.idle.size() < MAX_IDLE_SLABS) {
+            slab.position = 0;
+            this.idle.addLast(slab);
+        } else {
+            // Released by the garbage collector
+            this.reservedBytes -= SLAB_SIZE;
+        }
+    }
+
+    public record Allocation(Slab slab, DirectBuffer buffer) {
+    }
+
+    public static final class Slab {
+        private final ByteBuffer buffer;
+
+        private int position = 0;
+        private int references = 0;
+
+        private Slab(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.yamayaki.cesium.common.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One bit per chunk, grouped into regions of 32x32 chunks. A clear bit means the chunk is not stored, a set bit
+ * that it may be. Lookups of missing chunks are answered from here without a read transaction.
+ */
+public class ChunkPresenceIndex {
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+    private static final int REGION_WORDS = (1 << (REGION_SHIFT * 2)) / Long.SIZE;
+
+    private final Long2ObjectMap<AtomicLongArray> regions = new Long2ObjectOpenHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public boolean mayContain(final long chunkPos) {
+        final AtomicLongArray region = this.region(chunkPos);
+
+        return region != null && (region.get(word(chunkPos)) & bit(chunkPos)) != 0;
+    }
+
+    /**
+     * Updates a single chunk. Callers have to order updates of the same chunk with the changes they describe,
+     * updates of different chunks may happen concurrently.
+     */
+    public void set(final long chunkPos, final boolean present) {
+        if (present) {
+            this.getOrCreateRegion(chunkPos).accumulateAndGet(word(chunkPos), bit(chunkPos), (word, bit) -> word | bit);
+        } else {
+            final AtomicLongArray region = this.region(chunkPos);
+
+            if (region != null) {
+                region.accumulateAndGet(word(chunkPos), bit(chunkPos), (word, bit) -> word & ~bit);
+            }
+        }
+    }
+
+    private AtomicLongArray region(final long chunkPos) {
+        this.lock.readLock()
+                .lock();
+
+        try {
+            return this.regions.get(regionKey(chunkPos));
+        } finally {
+            this.lock.readLock()
+                    .unlock();
+        }
+    }
+
+    private AtomicLongArray getOrCreateRegion(final long chunkPos) {
+        final AtomicLongArray region = this.region(chunkPos);
+
+        if (region != null) {
+            return region;
+        }
+
+        this.lock.writeLock()
+                .lock();
+
+        try {
+            return this.regions.computeIfAbsent(regionKey(chunkPos), key -> new AtomicLongArray(REGION_WORDS));
+        } finally {
+            this.lock.writeLock()
+                    .unlock();
+        }
+    }
+
+    private static long regionKey(final long chunkPos) {
+        return ChunkPos.asLong(ChunkPos.getX(chunkPos) >> REGION_SHIFT, ChunkPos.getZ(chunkPos) >> REGION_SHIFT);
+    }
+
+    private static int index(final long chunkPos) {
+        return (ChunkPos.getX(chunkPos) & REGION_MASK) | (ChunkPos.getZ(chunkPos) & REGION_MASK) << REGION_SHIFT;
+    }
+
+    private static int word(final long chunkPos) {
+        return index(chunkPos) >>> 6;
+    }
+
+    private static long bit(final long chunkPos) {
+        return 1L << index(chunkPos);
+    }
+}
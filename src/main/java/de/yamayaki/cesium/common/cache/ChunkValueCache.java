@@ -0,0 +1,138 @@
+package de.yamayaki.cesium.common.cache;
+
+import de.yamayaki.cesium.api.database.CacheStats;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte-bounded cache of decompressed values, keyed by packed chunk position.
+ * <p>
+ * Eviction follows a segmented LRU: new entries start in a probation segment and are only promoted into the
+ * protected segment once they are hit again. Chunks that were loaded a single time are evicted before chunks that
+ * are loaded over and over.
+ */
+public class ChunkValueCache {
+    private static final int STAMP_SLOTS = 4096;
+
+    private final long maxBytes;
+    private final long maxProtectedBytes;
+    private final long maxEntryBytes;
+
+    private final Long2ObjectLinkedOpenHashMap<byte[]> probation = new Long2ObjectLinkedOpenHashMap<>();
+    private final Long2ObjectLinkedOpenHashMap<byte[]> protectedEntries = new Long2ObjectLinkedOpenHashMap<>();
+
+    private long probationBytes = 0L;
+    private long protectedBytes = 0L;
+
+    // Bumped when a key in the slot is invalidated, values of those keys read before that may not be inserted anymore.
+    // Keys share slots so this stays bounded, an invalidation only rejects the few other keys of its slot.
+    private final long[] stamps = new long[STAMP_SLOTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ChunkValueCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.maxProtectedBytes = maxBytes / 5 * 4;
+        this.maxEntryBytes = maxBytes / 8;
+    }
+
+    public synchronized long stamp(final long key) {
+        return this.stamps[slot(key)];
+    }
+
+    public synchronized byte[] get(final long key) {
+        byte[] value = this.protectedEntries.getAndMoveToLast(key);
+
+        if (value == null && (value = this.probation.remove(key)) != null) {
+            this.probationBytes -= value.length;
+            this.promote(key, value);
+        }
+
+        if (value != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+        }
+
+        return value;
+    }
+
+    /**
+     * Inserts a value that was read from the database, unless the key was invalidated after the given stamp
+     * was taken.
+     */
+    public synchronized void put(final long key, final byte[] value, final long stamp) {
+        if (stamp != this.stamps[slot(key)] || value.length > this.maxEntryBytes) {
+            return;
+        }
+
+        if (this.protectedEntries.containsKey(key) || this.probation.containsKey(key)) {
+            return;
+        }
+
+        this.probation.putAndMoveToLast(key, value);
+        this.probationBytes += value.length;
+
+        this.evict();
+    }
+
+    public synchronized void invalidate(final long key) {
+        this.stamps[slot(key)]++;
+
+        byte[] value;
+
+        if ((value = this.probation.remove(key)) != null) {
+            this.probationBytes -= value.length;
+        } else if ((value = this.protectedEntries.remove(key)) != null) {
+            this.protectedBytes -= value.length;
+        }
+    }
+
+    public CacheStats stats() {
+        final long size;
+
+        synchronized (this) {
+            size = this.probationBytes + this.protectedBytes;
+        }
+
+        return new CacheStats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), size, this.maxBytes);
+    }
+
+    private static int slot(final long key) {
+        return (int) HashCommon.mix(key) & (STAMP_SLOTS - 1);
+    }
+
+    private void promote(final long key, final byte[] value) {
+        this.protectedEntries.putAndMoveToLast(key, value);
+        this.protectedBytes += value.length;
+
+        // Demote the least recently used protected entries, they get another chance in probation
+        while (this.protectedBytes > this.maxProtectedBytes) {
+            final long demotedKey = this.protectedEntries.firstLongKey();
+            final byte[] demoted = this.protectedEntries.removeFirst();
+
+            this.protectedBytes -= demoted.length;
+
+            this.probation.putAndMoveToLast(demotedKey, demoted);
+            this.probationBytes += demoted.length;
+        }
+
+        this.evict();
+    }
+
+    private void evict() {
+        while (this.probationBytes + this.protectedBytes > this.maxBytes) {
+            if (!this.probation.isEmpty()) {
+                this.probationBytes -= this.probation.removeFirst().length;
+            } else {
+                this.protectedBytes -= this.protectedEntries.removeFirst().length;
+            }
+
+            this.evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.api.database.IKVTransaction;
+import de.yamayaki.cesium.api.io.ICompressor;
+import de.yamayaki.cesium.common.DefaultCompressors;
+import de.yamayaki.cesium.common.buffer.SlabArena;
+import org.agrona.DirectBuffer;
+import org.lmdbjava.Txn;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+public abstract class AbstractKVTransaction<K, V> implements IKVTransaction<K, V> {
+    // Rough size of a leaf node header and its key
+    protected static final int ENTRY_OVERHEAD = 64;
+
+    protected final KVDatabase<K, V> storage;
+
+    public AbstractKVTransaction(final KVDatabase<K, V> storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void add(final K key, final V value) {
+        this.addBytes(key, this.serialize(value));
+    }
+
+    protected byte[] serialize(final V value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            // The only copy made while saving, it is kept for reads until the value is compressed
+            final DirectBuffer buffer = this.storage.getValueSerializer()
+                    .serializeToBuffer(value);
+
+            final byte[] bytes = new byte[buffer.capacity()];
+            buffer.getBytes(0, bytes);
+
+            return bytes;
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't serialize value", e);
+        }
+    }
+
+    // Compression happens in the background, it has to be finished before the value is written
+    protected Pending createPending(final byte[] value) {
+        if (value == null) {
+            return Pending.DELETED;
+        }
+
+        final ICompressor compressor = this.storage.getCompressor();
+        final Pending pending = new Pending(value, () -> compressor.compress(value, 0, value.length), this.storage.arena());
+
+        if (compressor != DefaultCompressors.NONE) {
+            CompressionPool.submit(pending.data);
+        }
+
+        return pending;
+    }
+
+    protected Pending createStoredPending(final DirectBuffer value) {
+        return new Pending(value, this.storage.arena());
+    }
+
+    /**
+     * Returns the change for the given key that was not committed yet, or null if there is none.
+     */
+    abstract Pending lookup(final K key);
+
+    /**
+     * Takes the pending changes as a new snapshot. Snapshots are committed in the order they were taken, several of
+     * them may be waiting for their commit at once.
+     */
+    abstract void createSnapshot();
+
+    /**
+     * Returns the changes of the newest snapshot, sorted by key. Sorting happens while the snapshot is prepared, so
+     * committing it only has to write the changes.
+     */
+    abstract Changes sortedChanges();
+
+    /**
+     * Drops the oldest snapshot after it was committed.
+     */
+    abstract void clearSnapshot();
+
+    /**
+     * Returns the changes of the newest snapshot to the pending ones, after it could not be prepared for a commit.
+     */
+    abstract void restoreSnapshot();
+
+    /**
+     * Estimates how many bytes the newest snapshot occupies once written.
+     */
+    abstract long snapshotSize();
+
+    /**
+     * Size of the change once written. Waits for the compression of the value.
+     */
+    protected static long entrySize(final Pending value) {
+        final DirectBuffer data = value.data();
+
+        return ENTRY_OVERHEAD + (data != null ? data.capacity() : 0);
+    }
+
+    /**
+     * Size of the change as it was added, which is known before compression finished.
+     */
+    protected static long rawSize(final Pending value) {
+        return ENTRY_OVERHEAD + value.rawLength();
+    }
+
+    /**
+     * Sorted changes of a snapshot. They may be written in several ranges, each range in ascending order and by
+     * a single transaction.
+     */
+    abstract static class Changes {
+        abstract int count();
+
+        abstract Pending value(final int index);
+
+        /**
+         * Writes the changes from index {@code from} (inclusive) to {@code to} (exclusive). Keys past the end of the
+         * database are appended.
+         */
+        abstract void write(final Txn<DirectBuffer> txn, final int from, final int to);
+    }
+
+    /**
+     * A change that was not committed yet. The uncompressed bytes are only kept until the value is compressed, reads
+     * afterwards decompress it again. The compressed bytes are stored off-heap until the change is either committed
+     * or replaced, see {@link #release()}.
+     */
+    static final class Pending {
+        static final Pending DELETED = new Pending();
+
+        private final int rawLength;
+        private final FutureTask<DirectBuffer> data;
+        private final SlabArena arena;
+
+        private volatile byte[] raw;
+
+        // Guarded by this
+        private SlabArena.Allocation allocation = null;
+        private int references = 1;
+
+        private Pending() {
+            this.raw = null;
+            this.rawLength = 0;
+            this.data = null;
+            this.arena = null;
+        }
+
+        private Pending(final byte[] raw, final Callable<DirectBuffer> compressor, final SlabArena arena) {
+            this.raw = raw;
+            this.rawLength = raw.length;
+            this.data = new FutureTask<>(() -> this.store(compressor.call()));
+            this.arena = arena;
+        }
+
+        // Already compressed, only the size as stored is known
+        private Pending(final DirectBuffer compressed, final SlabArena arena) {
+            this.raw = null;
+            this.rawLength = compressed.capacity();
+            this.arena = arena;
+            this.allocation = arena.store(compressed);
+
+            final DirectBuffer buffer = this.allocation.buffer();
+
+            this.data = new FutureTask<>(() -> buffer);
+            this.data.run();
+        }
+
+        private synchronized DirectBuffer store(final DirectBuffer compressed) {
+            // Replaced before compression finished
+            if (this.references == 0) {
+                return null;
+            }
+
+            this.allocation = this.arena.store(compressed);
+            this.raw = null;
+
+            return this.allocation.buffer();
+        }
+
+        /**
+         * The uncompressed bytes, or null once the value was compressed.
+         */
+        byte[] raw() {
+            return this.raw;
+        }
+
+        int rawLength() {
+            return this.rawLength;
+        }
+
+        /**
+         * The compressed bytes. Only valid while a reference to this change is held.
+         */
+        DirectBuffer data() {
+            if (this.data == null) {
+                return null;
+            }
+
+            // Compress on this thread if the pool did not get to it yet, otherwise this returns immediately
+            this.data.run();
+
+            try {
+                return this.data.get();
+            } catch (final ExecutionException e) {
+                throw new RuntimeException("Failed to compress value", e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while compressing value", e);
+            }
+        }
+
+        /**
+         * Takes an additional reference for reading the compressed bytes. Fails if the change was already released, it
+         * has then been committed or replaced by a newer one.
+         */
+        synchronized boolean retain() {
+            if (this.data == null) {
+                return true;
+            }
+
+            if (this.references == 0) {
+                return false;
+            }
+
+            this.references++;
+
+            return true;
+        }
+
+        synchronized void release() {
+            if (this.data == null || --this.references > 0) {
+                return;
+            }
+
+            this.data.cancel(false);
+
+            if (this.allocation != null) {
+                this.arena.free(this.allocation);
+                this.allocation = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.api.database.ICloseableLongIterator;
+import de.yamayaki.cesium.api.io.IChunkKeySerializer;
+import org.agrona.DirectBuffer;
+import org.lmdbjava.Cursor;
+import org.lmdbjava.Txn;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ChunkCursorIterator implements ICloseableLongIterator {
+    private final ReentrantReadWriteLock lock;
+    private final ReaderPool readers;
+    private final Txn<DirectBuffer> txn;
+
+    private final Cursor<DirectBuffer> cursor;
+    private final IChunkKeySerializer serializer;
+
+    private boolean hasNext;
+
+    public ChunkCursorIterator(final ReentrantReadWriteLock lock, final ReaderPool readers, final Txn<DirectBuffer> txn, final Cursor<DirectBuffer> cursor, final IChunkKeySerializer serializer) {
+        this.lock = lock;
+        this.readers = readers;
+        this.txn = txn;
+
+        this.cursor = cursor;
+        this.serializer = serializer;
+
+        this.hasNext = this.cursor.first();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.hasNext;
+    }
+
+    @Override
+    public long nextLong() {
+        final long key = this.cursor.key()
+                .getLong(0, ByteOrder.BIG_ENDIAN);
+
+        this.hasNext = this.cursor.next();
+
+        return this.serializer.decode(key);
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            this.cursor.close();
+        } finally {
+            this.readers.release(this.txn);
+
+            this.lock.readLock()
+                    .unlock();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.api.database.CacheStats;
+import de.yamayaki.cesium.api.database.ChunkDatabaseSpec;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
+import de.yamayaki.cesium.api.database.IChunkKVDatabase;
+import de.yamayaki.cesium.api.database.ICloseableLongIterator;
+import de.yamayaki.cesium.api.database.IValueVisitor;
+import de.yamayaki.cesium.api.io.IChunkKeySerializer;
+import de.yamayaki.cesium.common.cache.ChunkPresenceIndex;
+import de.yamayaki.cesium.common.cache.ChunkValueCache;
+import de.yamayaki.cesium.common.serializer.ChunkMetadataSerializer;
+import net.minecraft.world.level.ChunkPos;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.lmdbjava.Txn;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Function;
+
+/**
+ * Database keyed by packed chunk positions. Keys are encoded straight into a reused direct buffer, so lookups and
+ * writes do not allocate.
+ */
+public class ChunkKVDatabase<V> extends KVDatabase<ChunkPos, V> implements IChunkKVDatabase<V> {
+    private static final ThreadLocal<UnsafeBuffer> LONG_KEY_BUFFER = ThreadLocal.withInitial(() -> new UnsafeBuffer(ByteBuffer.allocateDirect(Long.BYTES)));
+
+    private final IChunkKeySerializer chunkKeySerializer;
+
+    private final ChunkValueCache cache;
+    private final ChunkPresenceIndex presence = new ChunkPresenceIndex();
+
+    // Describes the values of this database, see ChunkDatabaseSpec
+    private ChunkKVDatabase<ChunkMetadata> metadata = null;
+
+    public ChunkKVDatabase(final LMDBInstance storage, final ChunkDatabaseSpec<V> spec, final boolean compressed, final long cacheBytes) {
+        super(storage, spec, compressed);
+
+        this.chunkKeySerializer = (IChunkKeySerializer) this.getKeySerializer();
+        this.cache = cacheBytes > 0 ? new ChunkValueCache(cacheBytes) : null;
+
+        this.buildPresenceIndex();
+    }
+
+    // Only walks the keys, values are not read
+    private void buildPresenceIndex() {
+        try (final ICloseableLongIterator it = this.getLongIterator()) {
+            while (it.hasNext()) {
+                this.presence.set(it.nextLong(), true);
+            }
+        } catch (final Exception e) {
+            throw new RuntimeException("Failed to index stored chunks", e);
+        }
+    }
+
+    @Override
+    public V getValue(final ChunkPos key) {
+        return this.getValue(key.toLong());
+    }
+
+    @Override
+    public V getValue(final long chunkPos) {
+        if (!this.presence.mayContain(chunkPos)) {
+            return null;
+        }
+
+        // The cache holds uncompressed bytes, only without it values are deserialized while decompressing
+        if (this.cache == null) {
+            final AbstractKVTransaction.Pending pending = this.retainPending(chunkPos);
+
+            if (pending != null) {
+                return readPending(pending, this::readValue, this::deserializeValue);
+            }
+
+            return this.visitBuffer(this.keyBuffer(chunkPos), this::readValue);
+        }
+
+        return this.deserializeValue(this.getBytes(chunkPos));
+    }
+
+    @Override
+    public byte[] getBytes(final ChunkPos key) {
+        return this.getBytes(key.toLong());
+    }
+
+    @Override
+    public byte[] getBytes(final long chunkPos) {
+        if (!this.presence.mayContain(chunkPos)) {
+            return null;
+        }
+
+        if (this.cache == null) {
+            final AbstractKVTransaction.Pending pending = this.retainPending(chunkPos);
+
+            if (pending != null) {
+                return readPending(pending, this::decompress, Function.identity());
+            }
+
+            return this.visitBuffer(this.keyBuffer(chunkPos), this::decompress);
+        }
+
+        // Taken before looking at pending changes, a value that is replaced while we read it is not cached
+        final long stamp = this.cache.stamp(chunkPos);
+
+        final AbstractKVTransaction.Pending pending = this.retainPending(chunkPos);
+
+        if (pending != null) {
+            return readPending(pending, this::decompress, Function.identity());
+        }
+
+        byte[] value = this.cache.get(chunkPos);
+
+        if (value == null && (value = this.visitBuffer(this.keyBuffer(chunkPos), this::decompress)) != null) {
+            this.cache.put(chunkPos, value, stamp);
+        }
+
+        return value;
+    }
+
+    @Override
+    public <T> T visitBytes(final ChunkPos key, final IValueVisitor<T> visitor) {
+        return this.visitBytes(key.toLong(), visitor);
+    }
+
+    @Override
+    public <T> T visitBytes(final long chunkPos, final IValueVisitor<T> visitor) {
+        if (!this.presence.mayContain(chunkPos)) {
+            return null;
+        }
+
+        final AbstractKVTransaction.Pending pending = this.retainPending(chunkPos);
+
+        if (pending != null) {
+            return visitPending(pending, visitor);
+        }
+
+        return this.visitBuffer(this.keyBuffer(chunkPos), visitor);
+    }
+
+    @Override
+    public <S> void scan(final ChunkPos key, final S scanner) {
+        if (this.presence.mayContain(key.toLong())) {
+            super.scan(key, scanner);
+        }
+    }
+
+    @Override
+    protected byte[] cachedBytes(final ChunkPos key) {
+        return this.cache != null ? this.cache.get(key.toLong()) : null;
+    }
+
+    private AbstractKVTransaction.Pending retainPending(final long chunkPos) {
+        final ChunkKVTransaction<V> transaction = (ChunkKVTransaction<V>) this.transaction;
+
+        AbstractKVTransaction.Pending pending;
+
+        // A change which can't be retained was committed or replaced in the meantime, so look again
+        while ((pending = transaction.lookup(chunkPos)) != null) {
+            if (pending.retain()) {
+                return pending;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Called with every change, in the same order as the changes to the chunk are made.
+     */
+    void setPresent(final long chunkPos, final boolean present) {
+        this.presence.set(chunkPos, present);
+    }
+
+    void invalidate(final long chunkPos) {
+        if (this.cache != null) {
+            this.cache.invalidate(chunkPos);
+        }
+    }
+
+    void setMetadata(final ChunkKVDatabase<ChunkMetadata> metadata) {
+        this.metadata = metadata;
+    }
+
+    /**
+     * Fills the stored size of a value written by the given transaction into its metadata record. Metadata is
+     * committed first, so the record is already visible to the transaction.
+     */
+    void recordStoredSize(final Txn<DirectBuffer> txn, final long key, final int storedSize) {
+        if (this.metadata != null) {
+            this.metadata.putStoredSize(txn, key, storedSize);
+        }
+    }
+
+    private void putStoredSize(final Txn<DirectBuffer> txn, final long key, final int storedSize) {
+        final DirectBuffer keyBuffer = this.encodedKeyBuffer(key);
+        final DirectBuffer record = this.getBuffer(txn, keyBuffer);
+
+        if (record == null) {
+            return;
+        }
+
+        // The record points into the map and may move once it is written, so it is patched in a copy
+        final UnsafeBuffer patched = new UnsafeBuffer(new byte[record.capacity()]);
+        patched.putBytes(0, record, 0, record.capacity());
+
+        ChunkMetadataSerializer.putStoredSize(patched, storedSize);
+
+        this.putBuffer(txn, keyBuffer, patched, false);
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return this.cache != null ? this.cache.stats() : null;
+    }
+
+    @Override
+    public ICloseableLongIterator getLongIterator() {
+        return this.openCursor((lock, readers, txn, cursor) -> new ChunkCursorIterator(lock, readers, txn, cursor, this.chunkKeySerializer));
+    }
+
+    public void putValue(final Txn<DirectBuffer> txn, final long chunkPos, final byte[] value) {
+        this.presence.set(chunkPos, true);
+        this.putBuffer(txn, this.keyBuffer(chunkPos), value);
+    }
+
+    @Override
+    public void putValue(final Txn<DirectBuffer> txn, final ChunkPos key, final byte[] value) {
+        this.putValue(txn, key.toLong(), value);
+    }
+
+    public void delete(final Txn<DirectBuffer> txn, final long chunkPos) {
+        this.deleteBuffer(txn, this.keyBuffer(chunkPos));
+    }
+
+    long encodeKey(final long chunkPos) {
+        return this.chunkKeySerializer.encode(chunkPos);
+    }
+
+    void putEncoded(final Txn<DirectBuffer> txn, final long key, final DirectBuffer value, final boolean append) {
+        this.putBuffer(txn, this.encodedKeyBuffer(key), value, append);
+    }
+
+    void deleteEncoded(final Txn<DirectBuffer> txn, final long key) {
+        this.deleteBuffer(txn, this.encodedKeyBuffer(key));
+    }
+
+    @Override
+    protected DirectBuffer keyBuffer(final ChunkPos key) {
+        return this.keyBuffer(key.toLong());
+    }
+
+    private DirectBuffer keyBuffer(final long chunkPos) {
+        return this.encodedKeyBuffer(this.chunkKeySerializer.encode(chunkPos));
+    }
+
+    private DirectBuffer encodedKeyBuffer(final long key) {
+        final UnsafeBuffer buffer = LONG_KEY_BUFFER.get();
+        buffer.putLong(0, key, ByteOrder.BIG_ENDIAN);
+
+        return buffer;
+    }
+}
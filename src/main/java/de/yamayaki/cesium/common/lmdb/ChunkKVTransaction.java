@@ -0,0 +1,200 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.api.database.IChunkKVTransaction;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ReferenceMap;
+import it.unimi.dsi.fastutil.longs.Long2ReferenceMaps;
+import it.unimi.dsi.fastutil.longs.Long2ReferenceOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+import org.agrona.DirectBuffer;
+import org.lmdbjava.Txn;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class ChunkKVTransaction<V> extends AbstractKVTransaction<ChunkPos, V> implements IChunkKVTransaction<V> {
+    private final ChunkKVDatabase<V> database;
+
+    private final PendingStripes<Long2ReferenceMap<Pending>> stripes = new PendingStripes<>(Long2ReferenceOpenHashMap::new);
+
+    public ChunkKVTransaction(final ChunkKVDatabase<V> storage) {
+        super(storage);
+        this.database = storage;
+    }
+
+    @Override
+    public void add(final long chunkPos, final V value) {
+        this.addBytes(chunkPos, this.serialize(value));
+    }
+
+    @Override
+    public void addBytes(final ChunkPos key, final byte[] value) {
+        this.addBytes(key.toLong(), value);
+    }
+
+    @Override
+    public void addBytes(final long chunkPos, final byte[] value) {
+        this.addPending(chunkPos, this.createPending(value));
+    }
+
+    @Override
+    public void addStored(final ChunkPos key, final DirectBuffer value) {
+        this.addPending(key.toLong(), this.createStoredPending(value));
+    }
+
+    private void addPending(final long chunkPos, final Pending data) {
+        final PendingStripes.Stripe<Long2ReferenceMap<Pending>> stripe = this.stripe(chunkPos);
+
+        final Pending previous;
+
+        // Updated under the stripe lock, so concurrent changes of a chunk can't leave it marked as missing
+        synchronized (stripe) {
+            this.database.setPresent(chunkPos, data != Pending.DELETED);
+            previous = stripe.pending.put(chunkPos, data);
+        }
+
+        if (previous != null) {
+            previous.release();
+        }
+
+        this.database.invalidate(chunkPos);
+
+        this.storage.setDirty(rawSize(data));
+    }
+
+    @Override
+    Pending lookup(final ChunkPos key) {
+        return this.lookup(key.toLong());
+    }
+
+    Pending lookup(final long chunkPos) {
+        final PendingStripes.Stripe<Long2ReferenceMap<Pending>> stripe = this.stripe(chunkPos);
+
+        synchronized (stripe) {
+            Pending data = stripe.pending.get(chunkPos);
+
+            // Newer snapshots take precedence over older ones
+            final Iterator<Long2ReferenceMap<Pending>> it = stripe.snapshots.descendingIterator();
+
+            while (data == null && it.hasNext()) {
+                data = it.next().get(chunkPos);
+            }
+
+            return data;
+        }
+    }
+
+    private PendingStripes.Stripe<Long2ReferenceMap<Pending>> stripe(final long chunkPos) {
+        return this.stripes.stripe((int) HashCommon.mix(chunkPos));
+    }
+
+    @Override
+    void createSnapshot() {
+        this.stripes.createSnapshot();
+    }
+
+    @Override
+    Changes sortedChanges() {
+        final List<Long2ReferenceMap<Pending>> snapshot = new ArrayList<>();
+        this.stripes.forEachNewest(snapshot::add);
+
+        int count = 0;
+        for (final Long2ReferenceMap<Pending> stripe : snapshot) {
+            count += stripe.size();
+        }
+
+        final long[] keys = new long[count];
+        final Pending[] values = new Pending[count];
+        final int[] order = new int[count];
+
+        int i = 0;
+        for (final Long2ReferenceMap<Pending> stripe : snapshot) {
+            for (final Long2ReferenceMap.Entry<Pending> entry : Long2ReferenceMaps.fastIterable(stripe)) {
+                keys[i] = this.database.encodeKey(entry.getLongKey());
+                values[i] = entry.getValue();
+                order[i] = i;
+                i++;
+            }
+        }
+
+        // Writing in key order touches every page once
+        IntArrays.quickSort(order, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+
+        return new Changes() {
+            @Override
+            int count() {
+                return order.length;
+            }
+
+            @Override
+            Pending value(final int index) {
+                return values[order[index]];
+            }
+
+            @Override
+            void write(final Txn<DirectBuffer> txn, final int from, final int to) {
+                final byte[] lastKey = ChunkKVTransaction.this.database.lastKey(txn);
+                final long last = lastKey != null ? ByteBuffer.wrap(lastKey).getLong() : 0L;
+
+                boolean append = lastKey == null;
+
+                for (int index = from; index < to; index++) {
+                    final long key = keys[order[index]];
+                    final Pending value = values[order[index]];
+
+                    if (value == Pending.DELETED) {
+                        ChunkKVTransaction.this.database.deleteEncoded(txn, key);
+                        continue;
+                    }
+
+                    append = append || Long.compareUnsigned(key, last) > 0;
+
+                    final DirectBuffer data = value.data();
+
+                    ChunkKVTransaction.this.database.putEncoded(txn, key, data, append);
+                    ChunkKVTransaction.this.database.recordStoredSize(txn, key, data.capacity());
+                }
+            }
+        };
+    }
+
+    @Override
+    void clearSnapshot() {
+        this.stripes.clearSnapshot(snapshot -> {
+            for (final Pending value : snapshot.values()) {
+                value.release();
+            }
+        });
+    }
+
+    @Override
+    void restoreSnapshot() {
+        this.stripes.restoreSnapshot((snapshot, pending) -> {
+            for (final Long2ReferenceMap.Entry<Pending> entry : Long2ReferenceMaps.fastIterable(pending)) {
+                final Pending replaced = snapshot.put(entry.getLongKey(), entry.getValue());
+
+                if (replaced != null) {
+                    replaced.release();
+                }
+            }
+
+            return snapshot;
+        });
+    }
+
+    @Override
+    long snapshotSize() {
+        final long[] size = {0L};
+
+        this.stripes.forEachNewest(snapshot -> {
+            for (final Pending value : snapshot.values()) {
+                size[0] += entrySize(value);
+            }
+        });
+
+        return size[0];
+    }
+}
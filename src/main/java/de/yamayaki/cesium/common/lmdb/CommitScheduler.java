@@ -0,0 +1,80 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups changes into larger transactions. A commit becomes due once the pending changes exceed a size or entry
+ * limit, once the oldest change waited long enough, or when one was requested explicitly.
+ */
+public class CommitScheduler {
+    private final long maxBytes;
+    private final long maxEntries;
+    private final long maxDelayNanos;
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong pendingEntries = new AtomicLong();
+    private final AtomicLong oldestChange = new AtomicLong(0L);
+
+    private volatile boolean requested = false;
+
+    public CommitScheduler(final long maxBytes, final long maxEntries, final long maxDelayMillis) {
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    }
+
+    public void record(final long bytes) {
+        this.pendingBytes.addAndGet(bytes);
+        this.pendingEntries.incrementAndGet();
+
+        // Zero marks "nothing pending", avoid it as a timestamp
+        this.oldestChange.compareAndSet(0L, System.nanoTime() | 1L);
+    }
+
+    public void request() {
+        this.requested = true;
+    }
+
+    public boolean isDue() {
+        final long oldest = this.oldestChange.get();
+
+        if (oldest == 0L) {
+            return false;
+        }
+
+        return this.requested
+                || this.pendingBytes.get() >= this.maxBytes
+                || this.pendingEntries.get() >= this.maxEntries
+                || System.nanoTime() - oldest >= this.maxDelayNanos;
+    }
+
+    public long pendingBytes() {
+        return this.pendingBytes.get();
+    }
+
+    public long pendingEntries() {
+        return this.pendingEntries.get();
+    }
+
+    /**
+     * Called right before the pending changes are taken for a commit. Changes recorded afterward count towards the
+     * next one. Returns the amount of bytes that were pending.
+     */
+    public long reset() {
+        this.requested = false;
+
+        this.oldestChange.set(0L);
+        this.pendingEntries.set(0L);
+
+        return this.pendingBytes.getAndSet(0L);
+    }
+
+    /**
+     * Counts bytes taken by {@link #reset()} as pending again, after they could not be prepared for a commit.
+     */
+    public void restore(final long bytes) {
+        this.pendingBytes.addAndGet(bytes);
+        this.oldestChange.compareAndSet(0L, System.nanoTime() | 1L);
+    }
+}
@@ -0,0 +1,44 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.CesiumMod;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compresses added values in the background. Tasks which do not fit into the queue are rejected and never run here,
+ * those values are compressed by the first thread reading or committing them instead, see
+ * {@link AbstractKVTransaction.Pending#data()}.
+ */
+public class CompressionPool {
+    private static final int QUEUE_SIZE = 4096;
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private static ThreadPoolExecutor createExecutor() {
+        final int threads = CesiumMod.config().compressionThreads();
+        final AtomicInteger count = new AtomicInteger();
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            final Thread thread = new Thread(runnable, "Cesium-Compression-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    public static void submit(final Runnable task) {
+        try {
+            EXECUTOR.execute(task);
+        } catch (final RejectedExecutionException ignored) {
+            // Compressed on commit
+        }
+    }
+}
@@ -2,17 +2,28 @@ package de.yamayaki.cesium.common.lmdb;
 
 import de.yamayaki.cesium.api.database.ICloseableIterator;
 import de.yamayaki.cesium.api.io.ISerializer;
+import org.agrona.DirectBuffer;
 import org.lmdbjava.Cursor;
+import org.lmdbjava.Txn;
 
 import java.io.IOException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class CursorIterator<K> implements ICloseableIterator<K> {
-    private final Cursor<byte[]> cursor;
+    private final ReentrantReadWriteLock lock;
+    private final ReaderPool readers;
+    private final Txn<DirectBuffer> txn;
+
+    private final Cursor<DirectBuffer> cursor;
     private final ISerializer<K> serializer;
 
     private boolean hasNext;
 
-    public CursorIterator(final Cursor<byte[]> cursor, final ISerializer<K> serializer) {
+    public CursorIterator(final ReentrantReadWriteLock lock, final ReaderPool readers, final Txn<DirectBuffer> txn, final Cursor<DirectBuffer> cursor, final ISerializer<K> serializer) {
+        this.lock = lock;
+        this.readers = readers;
+        this.txn = txn;
+
         this.cursor = cursor;
         this.serializer = serializer;
 
@@ -27,7 +38,12 @@ public class CursorIterator<K> implements ICloseableIterator<K> {
     @Override
     public K next() {
         try {
-            final K key = this.serializer.deserialize(this.cursor.key());
+            final DirectBuffer buffer = this.cursor.key();
+            final byte[] bytes = new byte[buffer.capacity()];
+
+            buffer.getBytes(0, bytes);
+
+            final K key = this.serializer.deserialize(bytes);
 
             this.hasNext = this.cursor.next();
 
@@ -39,6 +55,13 @@ public class CursorIterator<K> implements ICloseableIterator<K> {
 
     @Override
     public void close() throws Exception {
-        this.cursor.close();
+        try {
+            this.cursor.close();
+        } finally {
+            this.readers.release(this.txn);
+
+            this.lock.readLock()
+                    .unlock();
+        }
     }
 }
@@ -3,39 +3,65 @@ package de.yamayaki.cesium.common.lmdb;
 import de.yamayaki.cesium.api.database.DatabaseSpec;
 import de.yamayaki.cesium.api.database.ICloseableIterator;
 import de.yamayaki.cesium.api.database.IKVDatabase;
+import de.yamayaki.cesium.api.database.IValueVisitor;
+import de.yamayaki.cesium.api.database.KeyRange;
 import de.yamayaki.cesium.api.io.ICompressor;
 import de.yamayaki.cesium.api.io.IScannable;
 import de.yamayaki.cesium.api.io.ISerializer;
+import de.yamayaki.cesium.api.io.ISpatialSerializer;
 import de.yamayaki.cesium.common.DefaultCompressors;
 import de.yamayaki.cesium.common.DefaultSerializers;
+import de.yamayaki.cesium.common.buffer.SlabArena;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.minecraft.Util;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.lmdbjava.Cursor;
 import org.lmdbjava.Dbi;
 import org.lmdbjava.DbiFlags;
 import org.lmdbjava.Env;
+import org.lmdbjava.PutFlags;
 import org.lmdbjava.Stat;
 import org.lmdbjava.Txn;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 public class KVDatabase<K, V> implements IKVDatabase<K, V> {
+    private static final ThreadLocal<UnsafeBuffer> KEY_BUFFER = ThreadLocal.withInitial(() -> new UnsafeBuffer(ByteBuffer.allocateDirect(511)));
+
     private final LMDBInstance storage;
 
-    private final Env<byte[]> env;
-    private final Dbi<byte[]> dbi;
+    private final Env<DirectBuffer> env;
+    private final Dbi<DirectBuffer> dbi;
 
     private final ISerializer<K> keySerializer;
     private final ISerializer<V> valueSerializer;
 
     private final ICompressor compressor;
 
+    protected AbstractKVTransaction<K, V> transaction;
+
     public KVDatabase(LMDBInstance storage, DatabaseSpec<K, V> spec, boolean compressed) {
         this.storage = storage;
 
         this.env = this.storage.env;
         this.dbi = this.env.openDbi(spec.getName(), DbiFlags.MDB_CREATE);
 
-        this.keySerializer = DefaultSerializers.getSerializer(spec.getKeyType());
+        this.keySerializer = DefaultSerializers.getKeySerializer(spec.getKeyType(), this.storage.keyFormat());
         this.valueSerializer = DefaultSerializers.getSerializer(spec.getValueType());
 
         this.compressor = compressed ? DefaultCompressors.ZSTD : DefaultCompressors.NONE;
@@ -43,8 +69,16 @@ public class KVDatabase<K, V> implements IKVDatabase<K, V> {
 
     @Override
     public V getValue(K key) {
-        byte[] buf = this.getBytes(key);
+        final AbstractKVTransaction.Pending pending = this.retainPending(key);
+
+        if (pending != null) {
+            return readPending(pending, this::readValue, this::deserializeValue);
+        }
+
+        return this.visitBuffer(this.keyBuffer(key), this::readValue);
+    }
 
+    protected V deserializeValue(final byte[] buf) {
         if (buf == null) {
             return null;
         }
@@ -58,31 +92,265 @@ public class KVDatabase<K, V> implements IKVDatabase<K, V> {
 
     @Override
     public byte[] getBytes(final K key) {
-        ReentrantReadWriteLock lock = this.storage.getLock();
-        byte[] buf;
+        final AbstractKVTransaction.Pending pending = this.retainPending(key);
+
+        if (pending != null) {
+            return readPending(pending, this::decompress, Function.identity());
+        }
+
+        return this.visitBuffer(this.keyBuffer(key), this::decompress);
+    }
+
+    @Override
+    public List<V> getMany(final Collection<K> keys) {
+        return this.visitMany(keys, this::readValue, this::deserializeValue);
+    }
+
+    @Override
+    public List<byte[]> getManyBytes(final Collection<K> keys) {
+        return this.visitMany(keys, this::decompress, Function.identity());
+    }
+
+    void setTransaction(final AbstractKVTransaction<K, V> transaction) {
+        this.transaction = transaction;
+    }
+
+    SlabArena arena() {
+        return this.storage.arena;
+    }
+
+    /**
+     * Returns the change for the given key that was not committed yet with a reference taken, or null if there is
+     * none.
+     */
+    private AbstractKVTransaction.Pending retainPending(final K key) {
+        AbstractKVTransaction.Pending pending;
+
+        // A change which can't be retained was committed or replaced in the meantime, so look again
+        while ((pending = this.transaction.lookup(key)) != null) {
+            if (pending.retain()) {
+                return pending;
+            }
+        }
+
+        return null;
+    }
+
+    // Changes which are not committed yet take precedence over the database, the reference taken by the caller is
+    // released once the visitor returns
+    protected static <T> T visitPending(final AbstractKVTransaction.Pending pending, final IValueVisitor<T> visitor) {
+        try {
+            final DirectBuffer data = pending.data();
+
+            return data != null ? visitor.visit(data) : null;
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to read value", e);
+        } finally {
+            pending.release();
+        }
+    }
+
+    // Uses the uncompressed bytes while they are still kept, the compressed ones otherwise
+    protected static <T> T readPending(final AbstractKVTransaction.Pending pending, final IValueVisitor<T> visitor, final Function<byte[], T> rawMapper) {
+        final byte[] raw = pending.raw();
+
+        if (raw == null) {
+            return visitPending(pending, visitor);
+        }
+
+        try {
+            return rawMapper.apply(raw);
+        } finally {
+            pending.release();
+        }
+    }
+
+    // Decompresses while deserializing, the uncompressed value is never copied out as a whole
+    protected V readValue(final DirectBuffer buffer) {
+        try (final InputStream input = this.compressor.decompressStream(buffer)) {
+            return this.valueSerializer.deserialize(input);
+        } catch (final Exception e) {
+            throw new RuntimeException("Failed to read value", e);
+        }
+    }
+
+    protected byte[] decompress(final DirectBuffer buffer) {
+        try {
+            return this.compressor.decompress(buffer);
+        } catch (final Exception e) {
+            throw new RuntimeException("Failed to decompress value", e);
+        }
+    }
+
+    @Override
+    public <T> T visitBytes(final K key, final IValueVisitor<T> visitor) {
+        final AbstractKVTransaction.Pending pending = this.retainPending(key);
+
+        if (pending != null) {
+            return visitPending(pending, visitor);
+        }
+
+        return this.visitBuffer(this.keyBuffer(key), visitor);
+    }
+
+    protected <T> T visitBuffer(final DirectBuffer key, final IValueVisitor<T> visitor) {
+        final ReentrantReadWriteLock lock = this.storage.getLock();
 
         lock.readLock()
                 .lock();
 
         try {
+            final Txn<DirectBuffer> txn = this.storage.readers.acquire();
+
             try {
-                buf = this.dbi.get(this.env.txnRead(), this.keySerializer.serialize(key));
+                final DirectBuffer buf = this.dbi.get(txn, key);
+
+                if (buf == null) {
+                    return null;
+                }
+
+                return visitor.visit(buf);
             } catch (final IOException e) {
-                throw new RuntimeException("Failed to deserialize key", e);
+                throw new RuntimeException("Failed to read value", e);
+            } finally {
+                this.storage.readers.release(txn);
             }
         } finally {
             lock.readLock()
                     .unlock();
         }
+    }
 
-        if (buf == null) {
-            return null;
+    @SuppressWarnings("unchecked")
+    private <T> List<T> visitMany(final Collection<K> keys, final IValueVisitor<T> visitor, final Function<byte[], T> pendingMapper) {
+        final Object[] results = new Object[keys.size()];
+        final byte[][] serializedKeys = new byte[keys.size()][];
+
+        int index = 0;
+        for (final K key : keys) {
+            final AbstractKVTransaction.Pending pending = this.retainPending(key);
+
+            if (pending == null) {
+                serializedKeys[index] = this.serializeKey(key);
+            } else {
+                results[index] = readPending(pending, visitor, pendingMapper);
+            }
+
+            index++;
         }
 
+        // Walk the tree in key order instead of jumping around
+        final int[] order = sortedOrder(serializedKeys);
+
+        final ReentrantReadWriteLock lock = this.storage.getLock();
+
+        lock.readLock()
+                .lock();
+
         try {
-            return this.compressor.decompress(buf);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to decompress value", e);
+            final Txn<DirectBuffer> txn = this.storage.readers.acquire();
+
+            try {
+                final int[] found = new int[order.length];
+                final DirectBuffer[] values = new DirectBuffer[order.length];
+
+                int count = 0;
+                for (final int keyIndex : order) {
+                    final DirectBuffer buf = this.dbi.get(txn, this.keyBuffer(serializedKeys[keyIndex]));
+
+                    if (buf != null) {
+                        found[count] = keyIndex;
+                        values[count] = new UnsafeBuffer(buf.addressOffset(), buf.capacity());
+                        count++;
+                    }
+                }
+
+                forEachParallel(count, valueIndex -> {
+                    try {
+                        results[found[valueIndex]] = visitor.visit(values[valueIndex]);
+                    } catch (final IOException e) {
+                        throw new RuntimeException("Failed to read value", e);
+                    }
+                });
+            } finally {
+                this.storage.readers.release(txn);
+            }
+        } finally {
+            lock.readLock()
+                    .unlock();
+        }
+
+        return (List<T>) Arrays.asList(results);
+    }
+
+    // Keys which are null are left out
+    static int[] sortedOrder(final byte[][] keys) {
+        int count = 0;
+        for (final byte[] key : keys) {
+            if (key != null) {
+                count++;
+            }
+        }
+
+        final int[] order = new int[count];
+        for (int i = 0, j = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                order[j++] = i;
+            }
+        }
+
+        IntArrays.quickSort(order, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+
+        return order;
+    }
+
+    // The calling thread works on the batch too, so it completes even if no worker is free
+    private static void forEachParallel(final int count, final IntConsumer task) {
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(count);
+
+        final Runnable worker = () -> {
+            int index;
+
+            while ((index = next.getAndIncrement()) < count) {
+                try {
+                    task.accept(index);
+                } catch (final Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        final int helpers = Math.min(count - 1, Runtime.getRuntime().availableProcessors() - 1);
+
+        try {
+            for (int i = 0; i < helpers; i++) {
+                Util.backgroundExecutor().execute(worker);
+            }
+        } catch (final RejectedExecutionException ignored) {
+        }
+
+        worker.run();
+
+        boolean interrupted = false;
+
+        while (done.getCount() > 0) {
+            try {
+                done.await();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure.get() != null) {
+            throw new RuntimeException("Failed to read values", failure.get());
         }
     }
 
@@ -94,21 +362,55 @@ public class KVDatabase<K, V> implements IKVDatabase<K, V> {
             return;
         }
 
-        byte[] bytes = this.getBytes(key);
+        final IScannable<T> scannable = (IScannable<T>) this.valueSerializer;
+        final AbstractKVTransaction.Pending pending = this.retainPending(key);
+
+        if (pending != null) {
+            readPending(pending, buffer -> this.scanBuffer(scannable, buffer, scanner), raw -> {
+                try {
+                    scannable.scan(raw, scanner);
+                } catch (final Exception ex) {
+                    throw new RuntimeException("Failed to scan value", ex);
+                }
+
+                return null;
+            });
 
-        if (bytes == null) {
             return;
         }
 
         try {
-            ((IScannable<T>) this.valueSerializer).scan(bytes, scanner);
+            final byte[] cached = this.cachedBytes(key);
+
+            if (cached != null) {
+                scannable.scan(cached, scanner);
+                return;
+            }
         } catch (Exception ex) {
             throw new RuntimeException("Failed to scan value", ex);
         }
+
+        this.visitBuffer(this.keyBuffer(key), buffer -> this.scanBuffer(scannable, buffer, scanner));
+    }
+
+    // Once the scanner is done the stream is closed, and the rest of the value is never decompressed
+    private <T> Void scanBuffer(final IScannable<T> scannable, final DirectBuffer buffer, final T scanner) throws IOException {
+        try (final InputStream input = this.compressor.decompressStream(buffer)) {
+            scannable.scan(input, scanner);
+        }
+
+        return null;
     }
 
-    public void setDirty() {
-        this.storage.isDirty = true;
+    /**
+     * Returns the uncompressed value if it is cached, databases without a cache return null.
+     */
+    protected byte[] cachedBytes(final K key) {
+        return null;
+    }
+
+    public void setDirty(final long bytes) {
+        this.storage.markDirty(bytes);
     }
 
     @Override
@@ -126,30 +428,167 @@ public class KVDatabase<K, V> implements IKVDatabase<K, V> {
         return this.compressor;
     }
 
-    public void putValue(Txn<byte[]> txn, K key, byte[] value) {
-        try {
-            this.dbi.put(txn, this.keySerializer.serialize(key), value);
-        } catch (final IOException e) {
-            throw new RuntimeException("Could not serialize key", e);
+    public void putValue(Txn<DirectBuffer> txn, K key, byte[] value) {
+        this.putBuffer(txn, this.keyBuffer(key), value);
+    }
+
+    public void delete(Txn<DirectBuffer> txn, K key) {
+        this.dbi.delete(txn, this.keyBuffer(key));
+    }
+
+    protected DirectBuffer getBuffer(final Txn<DirectBuffer> txn, final DirectBuffer key) {
+        return this.dbi.get(txn, key);
+    }
+
+    void putSerialized(final Txn<DirectBuffer> txn, final byte[] key, final DirectBuffer value, final boolean append) {
+        this.putBuffer(txn, this.keyBuffer(key), value, append);
+    }
+
+    void deleteSerialized(final Txn<DirectBuffer> txn, final byte[] key) {
+        this.deleteBuffer(txn, this.keyBuffer(key));
+    }
+
+    protected void putBuffer(final Txn<DirectBuffer> txn, final DirectBuffer key, final byte[] value) {
+        this.putBuffer(txn, key, value, false);
+    }
+
+    /**
+     * Appending skips the search for the insert position. Only allowed if the key is larger than every key in the
+     * database, see {@link #lastKey(Txn)}.
+     */
+    protected void putBuffer(final Txn<DirectBuffer> txn, final DirectBuffer key, final byte[] value, final boolean append) {
+        this.putBuffer(txn, key, new UnsafeBuffer(value), append);
+    }
+
+    protected void putBuffer(final Txn<DirectBuffer> txn, final DirectBuffer key, final DirectBuffer value, final boolean append) {
+        final int length = value.capacity();
+
+        final DirectBuffer reserved = append
+                ? this.dbi.reserve(txn, key, length, PutFlags.MDB_APPEND)
+                : this.dbi.reserve(txn, key, length);
+
+        ((MutableDirectBuffer) reserved).putBytes(0, value, 0, length);
+    }
+
+    /**
+     * Returns the largest key stored in the database, or null if it is empty.
+     */
+    byte[] lastKey(final Txn<DirectBuffer> txn) {
+        try (final Cursor<DirectBuffer> cursor = this.dbi.openCursor(txn)) {
+            if (!cursor.last()) {
+                return null;
+            }
+
+            final byte[] key = new byte[cursor.key().capacity()];
+            cursor.key().getBytes(0, key);
+
+            return key;
         }
     }
 
-    public void delete(Txn<byte[]> txn, K key) {
+    protected void deleteBuffer(final Txn<DirectBuffer> txn, final DirectBuffer key) {
+        this.dbi.delete(txn, key);
+    }
+
+    byte[] serializeKey(final K key) {
         try {
-            this.dbi.delete(txn, this.keySerializer.serialize(key));
+            return this.keySerializer.serialize(key);
         } catch (final IOException e) {
             throw new RuntimeException("Could not serialize key", e);
         }
     }
 
+    protected DirectBuffer keyBuffer(final K key) {
+        return this.keyBuffer(this.serializeKey(key));
+    }
+
+    private DirectBuffer keyBuffer(final byte[] bytes) {
+        final UnsafeBuffer buffer = KEY_BUFFER.get();
+        buffer.wrap(buffer.byteBuffer(), 0, bytes.length);
+        buffer.putBytes(0, bytes);
+
+        return buffer;
+    }
+
     @Override
     public ICloseableIterator<K> getIterator() {
-        final Cursor<byte[]> cursor = this.dbi.openCursor(this.env.txnRead());
-        return new CursorIterator<>(cursor, this.keySerializer);
+        return this.openCursor((lock, readers, txn, cursor) -> new CursorIterator<>(lock, readers, txn, cursor, this.keySerializer));
+    }
+
+    @Override
+    public ICloseableIterator<Map.Entry<K, byte[]>> getRange(final List<KeyRange<K>> ranges) {
+        final byte[][] from = new byte[ranges.size()][];
+        final byte[][] to = new byte[ranges.size()][];
+
+        for (int i = 0; i < ranges.size(); i++) {
+            from[i] = this.serializeKey(ranges.get(i).from());
+            to[i] = this.serializeKey(ranges.get(i).to());
+        }
+
+        final int[] order = sortedOrder(from);
+
+        final byte[][] sortedFrom = new byte[order.length][];
+        final byte[][] sortedTo = new byte[order.length][];
+
+        for (int i = 0; i < order.length; i++) {
+            sortedFrom[i] = from[order[i]];
+            sortedTo[i] = to[order[i]];
+        }
+
+        return this.openCursor((lock, readers, txn, cursor) -> new RangeIterator<>(lock, readers, txn, cursor, this.keySerializer, this.compressor, sortedFrom, sortedTo));
+    }
+
+    @Override
+    public ICloseableIterator<Map.Entry<K, byte[]>> getArea(final int minX, final int minZ, final int maxX, final int maxZ) {
+        return this.getRange(this.spatialKeySerializer().area(minX, minZ, maxX, maxZ));
+    }
+
+    @Override
+    public ICloseableIterator<Map.Entry<K, byte[]>> getRegion(final int regionX, final int regionZ) {
+        return this.getRange(this.spatialKeySerializer().region(regionX, regionZ));
+    }
+
+    private ISpatialSerializer<K> spatialKeySerializer() {
+        if (!(this.keySerializer instanceof ISpatialSerializer<K> spatialSerializer)) {
+            throw new UnsupportedOperationException("Keys of this database have no spatial ordering");
+        }
+
+        return spatialSerializer;
+    }
+
+    protected <I> I openCursor(final CursorFactory<I> factory) {
+        final ReentrantReadWriteLock lock = this.storage.getLock();
+
+        lock.readLock()
+                .lock();
+
+        final Txn<DirectBuffer> txn;
+
+        try {
+            txn = this.storage.readers.acquire();
+        } catch (final RuntimeException e) {
+            lock.readLock()
+                    .unlock();
+            throw e;
+        }
+
+        try {
+            return factory.create(lock, this.storage.readers, txn, this.dbi.openCursor(txn));
+        } catch (final RuntimeException e) {
+            this.storage.readers.release(txn);
+
+            lock.readLock()
+                    .unlock();
+            throw e;
+        }
+    }
+
+    protected interface CursorFactory<I> {
+        I create(final ReentrantReadWriteLock lock, final ReaderPool readers, final Txn<DirectBuffer> txn, final Cursor<DirectBuffer> cursor);
     }
 
-    public Stat getStats() {
-        return this.dbi.stat(this.env.txnRead());
+    public Stat getStats(final Txn<DirectBuffer> txn) {
+        return this.dbi.stat(txn);
     }
 
 
@@ -1,72 +1,159 @@
 package de.yamayaki.cesium.common.lmdb;
 
-import de.yamayaki.cesium.api.database.IKVTransaction;
+import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.objects.Object2ReferenceMap;
 import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import org.agrona.DirectBuffer;
 import org.lmdbjava.Txn;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
-public class KVTransaction<K, V> implements IKVTransaction<K, V> {
-    private final KVDatabase<K, V> storage;
-
-    private final Object2ReferenceMap<K, byte[]> pending = new Object2ReferenceOpenHashMap<>();
-    private final Object2ReferenceMap<K, byte[]> snapshot = new Object2ReferenceOpenHashMap<>();
+public class KVTransaction<K, V> extends AbstractKVTransaction<K, V> {
+    private final PendingStripes<Object2ReferenceMap<K, Pending>> stripes = new PendingStripes<>(Object2ReferenceOpenHashMap::new);
 
     public KVTransaction(KVDatabase<K, V> storage) {
-        this.storage = storage;
+        super(storage);
     }
 
     @Override
-    public void add(K key, V value) {
-        try {
-            byte[] data = null;
+    public void addBytes(final K key, final byte[] value) {
+        this.addPending(key, this.createPending(value));
+    }
 
-            if (value != null) {
-                data = this.storage.getValueSerializer()
-                        .serialize(value);
-            }
+    @Override
+    public void addStored(final K key, final DirectBuffer value) {
+        this.addPending(key, this.createStoredPending(value));
+    }
 
-            this.addBytes(key, data);
-        } catch (IOException e) {
-            throw new RuntimeException("Couldn't serialize value", e);
+    private void addPending(final K key, final Pending data) {
+        final PendingStripes.Stripe<Object2ReferenceMap<K, Pending>> stripe = this.stripe(key);
+
+        final Pending previous;
+
+        synchronized (stripe) {
+            previous = stripe.pending.put(key, data);
+        }
+
+        if (previous != null) {
+            previous.release();
         }
+
+        this.storage.setDirty(rawSize(data));
     }
 
     @Override
-    public void addBytes(final K key, final byte[] value) {
-        byte[] data = null;
+    Pending lookup(final K key) {
+        final PendingStripes.Stripe<Object2ReferenceMap<K, Pending>> stripe = this.stripe(key);
 
-        if (value != null) {
-            data = this.storage.getCompressor()
-                    .compress(value);
-        }
+        synchronized (stripe) {
+            Pending data = stripe.pending.get(key);
+
+            // Newer snapshots take precedence over older ones
+            final Iterator<Object2ReferenceMap<K, Pending>> it = stripe.snapshots.descendingIterator();
+
+            while (data == null && it.hasNext()) {
+                data = it.next().get(key);
+            }
 
-        synchronized (this.pending) {
-            this.pending.put(key, data);
+            return data;
         }
+    }
 
-        this.storage.setDirty();
+    private PendingStripes.Stripe<Object2ReferenceMap<K, Pending>> stripe(final K key) {
+        return this.stripes.stripe(HashCommon.mix(key.hashCode()));
     }
 
+    @Override
     void createSnapshot() {
-        synchronized (this.pending) {
-            this.snapshot.putAll(this.pending);
-            this.pending.clear();
-        }
+        this.stripes.createSnapshot();
     }
 
-    void addChanges(Txn<byte[]> txn) {
-        for (Object2ReferenceMap.Entry<K, byte[]> entry : this.snapshot.object2ReferenceEntrySet()) {
-            if (entry.getValue() != null) {
-                this.storage.putValue(txn, entry.getKey(), entry.getValue());
-            } else {
-                this.storage.delete(txn, entry.getKey());
+    @Override
+    Changes sortedChanges() {
+        final List<byte[]> keys = new ArrayList<>();
+        final List<Pending> values = new ArrayList<>();
+
+        this.stripes.forEachNewest(snapshot -> {
+            for (Object2ReferenceMap.Entry<K, Pending> entry : snapshot.object2ReferenceEntrySet()) {
+                keys.add(this.storage.serializeKey(entry.getKey()));
+                values.add(entry.getValue());
             }
-        }
+        });
+
+        // Writing in key order touches every page once
+        final byte[][] serializedKeys = keys.toArray(new byte[0][]);
+        final int[] order = KVDatabase.sortedOrder(serializedKeys);
+
+        return new Changes() {
+            @Override
+            int count() {
+                return order.length;
+            }
+
+            @Override
+            Pending value(final int index) {
+                return values.get(order[index]);
+            }
+
+            @Override
+            void write(final Txn<DirectBuffer> txn, final int from, final int to) {
+                final byte[] lastKey = KVTransaction.this.storage.lastKey(txn);
+                boolean append = lastKey == null;
+
+                for (int index = from; index < to; index++) {
+                    final byte[] key = serializedKeys[order[index]];
+                    final Pending value = values.get(order[index]);
+
+                    if (value == Pending.DELETED) {
+                        KVTransaction.this.storage.deleteSerialized(txn, key);
+                        continue;
+                    }
+
+                    append = append || Arrays.compareUnsigned(key, lastKey) > 0;
+
+                    KVTransaction.this.storage.putSerialized(txn, key, value.data(), append);
+                }
+            }
+        };
     }
 
+    @Override
     void clearSnapshot() {
-        this.snapshot.clear();
+        this.stripes.clearSnapshot(snapshot -> {
+            for (final Pending value : snapshot.values()) {
+                value.release();
+            }
+        });
+    }
+
+    @Override
+    void restoreSnapshot() {
+        this.stripes.restoreSnapshot((snapshot, pending) -> {
+            for (final Object2ReferenceMap.Entry<K, Pending> entry : pending.object2ReferenceEntrySet()) {
+                final Pending replaced = snapshot.put(entry.getKey(), entry.getValue());
+
+                if (replaced != null) {
+                    replaced.release();
+                }
+            }
+
+            return snapshot;
+        });
+    }
+
+    @Override
+    long snapshotSize() {
+        final long[] size = {0L};
+
+        this.stripes.forEachNewest(snapshot -> {
+            for (final Pending value : snapshot.values()) {
+                size[0] += entrySize(value);
+            }
+        });
+
+        return size[0];
     }
 }
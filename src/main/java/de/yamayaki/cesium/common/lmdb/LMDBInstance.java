@@ -1,14 +1,27 @@
 package de.yamayaki.cesium.common.lmdb;
 
 import de.yamayaki.cesium.CesiumConfig;
+import de.yamayaki.cesium.api.database.BacklogStats;
+import de.yamayaki.cesium.api.database.ChunkDatabaseSpec;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
 import de.yamayaki.cesium.api.database.DatabaseSpec;
+import de.yamayaki.cesium.api.database.IChunkKVDatabase;
+import de.yamayaki.cesium.api.database.IChunkKVTransaction;
 import de.yamayaki.cesium.api.database.IDBInstance;
 import de.yamayaki.cesium.api.database.IKVDatabase;
 import de.yamayaki.cesium.api.database.IKVTransaction;
+import de.yamayaki.cesium.api.database.KeyFormat;
+import de.yamayaki.cesium.common.buffer.SlabArena;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
-import org.lmdbjava.ByteArrayProxy;
+import net.minecraft.world.level.ChunkPos;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.lmdbjava.CopyFlags;
+import org.lmdbjava.Dbi;
+import org.lmdbjava.DbiFlags;
+import org.lmdbjava.DirectBufferProxy;
 import org.lmdbjava.Env;
 import org.lmdbjava.EnvFlags;
 import org.lmdbjava.EnvInfo;
@@ -17,48 +30,239 @@ import org.lmdbjava.Stat;
 import org.lmdbjava.Txn;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class LMDBInstance implements IDBInstance {
+    private static final ScheduledExecutorService SYNC_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "Cesium-Sync");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private static final ExecutorService FLUSH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "Cesium-Flush");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private static final String META_DATABASE = "cesium";
+    private static final byte[] KEY_FORMAT = "key_format".getBytes(StandardCharsets.UTF_8);
+
     private final Reference2ObjectMap<DatabaseSpec<?, ?>, KVDatabase<?, ?>> databases = new Reference2ObjectOpenHashMap<>();
-    private final Reference2ObjectMap<DatabaseSpec<?, ?>, KVTransaction<?, ?>> transactions = new Reference2ObjectOpenHashMap<>();
+    // Changes are committed in the order the databases were registered in
+    private final Reference2ObjectMap<DatabaseSpec<?, ?>, AbstractKVTransaction<?, ?>> transactions = new Reference2ObjectLinkedOpenHashMap<>();
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock prepareLock = new ReentrantLock();
+    // Held shared by writers adding related changes, a snapshot is only taken while nobody holds it
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
 
     protected final Logger logger;
     protected final boolean logsMapGrows;
 
-    protected final Env<byte[]> env;
+    protected final Env<DirectBuffer> env;
+    protected final ReaderPool readers;
+    protected final KeyFormat keyFormat;
+    protected final SlabArena arena = new SlabArena();
 
     protected final int MAX_COMMIT_TRIES = 3;
     protected final int resizeStep;
+    protected final MapGrowthPolicy growthPolicy;
+    protected final long pageSize;
+
+    protected final CesiumConfig.Durability durability;
+    protected final ScheduledFuture<?> syncTask;
+    protected final CommitScheduler commitScheduler;
+
+    // Limits how many snapshots may be taken before the oldest one is committed
+    protected final Semaphore pipeline;
+    protected final int pipelineDepth;
+    protected final ArrayDeque<PreparedSnapshot> preparedSnapshots = new ArrayDeque<>();
+
+    // A snapshot is written by several transactions if it exceeds these limits
+    protected final long sliceMaxBytes;
+    protected final long sliceMaxEntries;
+
+    protected final long backlogSoftLimit;
+    protected final long backlogHardLimit;
+    protected final AtomicLong committingBytes = new AtomicLong();
+    protected final LongAdder stalls = new LongAdder();
+    protected final AtomicBoolean flushQueued = new AtomicBoolean();
 
     protected volatile boolean isDirty = false;
 
     public LMDBInstance(final Path databasePath, final DatabaseSpec<?, ?>[] databases, final Logger logger, final CesiumConfig config) {
+        checkMetadataOrder(databases);
+
         this.logger = logger;
         this.logsMapGrows = config.logMapGrows();
 
-        this.env = Env.create(ByteArrayProxy.PROXY_BA)
-                .setMaxDbs(databases.length)
-                .open(databasePath.toFile(), EnvFlags.MDB_NOLOCK, EnvFlags.MDB_NOSUBDIR);
+        this.durability = config.durability();
+        this.commitScheduler = new CommitScheduler(config.commitMaxBytes(), config.commitMaxEntries(), config.commitMaxDelay());
+
+        this.pipelineDepth = config.commitPipelineDepth();
+        this.pipeline = new Semaphore(this.pipelineDepth);
+
+        this.sliceMaxBytes = config.commitSliceMaxBytes();
+        this.sliceMaxEntries = config.commitSliceMaxEntries();
+
+        this.backlogSoftLimit = config.backlogSoftLimit();
+        this.backlogHardLimit = config.backlogHardLimit();
+
+        this.env = Env.create(DirectBufferProxy.PROXY_DB)
+                .setMaxDbs(databases.length + 1)
+                .setMaxReaders(config.maxReaders())
+                .open(databasePath.toFile(), envFlags(this.durability));
+
+        // Clear reader slots left behind by a process that did not shut down cleanly
+        this.env.readerCheck();
+
+        this.readers = new ReaderPool(this.env, config.maxReaders());
 
         this.resizeStep = Arrays.stream(databases).mapToInt(DatabaseSpec::getInitialSize).sum();
 
+        this.growthPolicy = new MapGrowthPolicy(Math.max(this.resizeStep, config.mapGrowMinBytes()), config.mapGrowMaxBytes());
+        this.pageSize = this.env.stat().pageSize;
+
         EnvInfo info = this.env.info();
         if (info.mapSize < this.resizeStep) {
             this.env.setMapSize(this.resizeStep);
         }
 
+        this.keyFormat = this.readKeyFormat();
+
+        if (this.durability == CesiumConfig.Durability.PERIODIC) {
+            this.syncTask = SYNC_EXECUTOR.scheduleWithFixedDelay(this::sync, config.syncInterval(), config.syncInterval(), TimeUnit.SECONDS);
+        } else {
+            this.syncTask = null;
+        }
+
+        for (DatabaseSpec<?, ?> spec : databases) {
+            if (spec instanceof ChunkDatabaseSpec<?> chunkSpec) {
+                this.openChunkDatabase(chunkSpec, spec.isCompressed() && !config.isUncompressed(), config.cacheBytes(chunkSpec.getName()));
+            } else {
+                this.openDatabase(spec, spec.isCompressed() && !config.isUncompressed());
+            }
+        }
+
         for (DatabaseSpec<?, ?> spec : databases) {
-            KVDatabase<?, ?> database = new KVDatabase<>(this, spec, !config.isUncompressed());
+            if (spec instanceof ChunkDatabaseSpec<?> chunkSpec && chunkSpec.getMetadata() != null) {
+                this.linkMetadata(chunkSpec);
+            }
+        }
+    }
+
+    private <K, V> void openDatabase(final DatabaseSpec<K, V> spec, final boolean compressed) {
+        KVDatabase<K, V> database = new KVDatabase<>(this, spec, compressed);
+        KVTransaction<K, V> transaction = new KVTransaction<>(database);
+
+        database.setTransaction(transaction);
+
+        this.databases.put(spec, database);
+        this.transactions.put(spec, transaction);
+    }
+
+    private <V> void openChunkDatabase(final ChunkDatabaseSpec<V> spec, final boolean compressed, final long cacheBytes) {
+        ChunkKVDatabase<V> database = new ChunkKVDatabase<>(this, spec, compressed, cacheBytes);
+        ChunkKVTransaction<V> transaction = new ChunkKVTransaction<>(database);
+
+        database.setTransaction(transaction);
+
+        this.databases.put(spec, database);
+        this.transactions.put(spec, transaction);
+    }
+
+    // The stored size of a value is written into its metadata record, which has to be committed before the value
+    private static void checkMetadataOrder(final DatabaseSpec<?, ?>[] databases) {
+        for (int index = 0; index < databases.length; index++) {
+            if (databases[index] instanceof ChunkDatabaseSpec<?> spec && spec.getMetadata() != null
+                    && !Arrays.asList(databases).subList(0, index).contains(spec.getMetadata())) {
+                throw new IllegalArgumentException("Metadata of " + spec.getName() + " has to be registered before it");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void linkMetadata(final ChunkDatabaseSpec<?> spec) {
+        final ChunkKVDatabase<?> database = (ChunkKVDatabase<?>) this.databases.get(spec);
+        database.setMetadata((ChunkKVDatabase<ChunkMetadata>) this.databases.get(spec.getMetadata()));
+    }
+
+    private static EnvFlags[] envFlags(final CesiumConfig.Durability durability) {
+        return switch (durability) {
+            case STRICT -> new EnvFlags[]{EnvFlags.MDB_NOSUBDIR, EnvFlags.MDB_NOTLS};
+            case RELAXED -> new EnvFlags[]{EnvFlags.MDB_NOSUBDIR, EnvFlags.MDB_NOTLS, EnvFlags.MDB_NOMETASYNC};
+            case PERIODIC -> new EnvFlags[]{EnvFlags.MDB_NOSUBDIR, EnvFlags.MDB_NOTLS, EnvFlags.MDB_NOSYNC};
+        };
+    }
+
+    private void sync() {
+        try {
+            this.forceSync();
+        } catch (final LmdbException l) {
+            this.logger.error("Failed to sync database to disk", l);
+        }
+    }
+
+    private void forceSync() {
+        this.syncLock.lock();
+
+        try {
+            if (!this.env.isClosed()) {
+                this.env.sync(true);
+            }
+        } finally {
+            this.syncLock.unlock();
+        }
+    }
 
-            this.databases.put(spec, database);
-            this.transactions.put(spec, new KVTransaction<>(database));
+    private KeyFormat readKeyFormat() {
+        // Databases written before the format marker existed always use the legacy layout
+        final boolean existing = !this.env.getDbiNames().isEmpty();
+        final Dbi<DirectBuffer> meta = this.env.openDbi(META_DATABASE, DbiFlags.MDB_CREATE);
+
+        final UnsafeBuffer key = new UnsafeBuffer(ByteBuffer.allocateDirect(KEY_FORMAT.length));
+        key.putBytes(0, KEY_FORMAT);
+
+        try (final Txn<DirectBuffer> txn = this.env.txnWrite()) {
+            final DirectBuffer stored = meta.get(txn, key);
+
+            if (stored != null) {
+                return KeyFormat.byId(stored.getInt(0, ByteOrder.BIG_ENDIAN));
+            }
+
+            final KeyFormat format = existing ? KeyFormat.LEGACY : KeyFormat.CURRENT;
+
+            final UnsafeBuffer value = new UnsafeBuffer(ByteBuffer.allocateDirect(Integer.BYTES));
+            value.putInt(0, format.getId(), ByteOrder.BIG_ENDIAN);
+
+            meta.put(txn, key, value);
+            txn.commit();
+
+            return format;
         }
     }
 
@@ -77,7 +281,7 @@ public class LMDBInstance implements IDBInstance {
     @Override
     @SuppressWarnings("unchecked")
     public <K, V> IKVTransaction<K, V> getTransaction(DatabaseSpec<K, V> spec) {
-        KVTransaction<?, ?> transaction = this.transactions.get(spec);
+        AbstractKVTransaction<?, ?> transaction = this.transactions.get(spec);
 
         if (transaction == null) {
             throw new NullPointerException("No transaction is registered for spec " + spec);
@@ -86,35 +290,247 @@ public class LMDBInstance implements IDBInstance {
         return (IKVTransaction<K, V>) transaction;
     }
 
+    @Override
+    public <V> IChunkKVDatabase<V> getDatabase(ChunkDatabaseSpec<V> spec) {
+        return (IChunkKVDatabase<V>) this.getDatabase((DatabaseSpec<ChunkPos, V>) spec);
+    }
+
+    @Override
+    public <V> IChunkKVTransaction<V> getTransaction(ChunkDatabaseSpec<V> spec) {
+        return (IChunkKVTransaction<V>) this.getTransaction((DatabaseSpec<ChunkPos, V>) spec);
+    }
+
+    @Override
+    public void addAtomically(final Runnable changes) {
+        this.snapshotLock.readLock()
+                .lock();
+
+        try {
+            changes.run();
+        } finally {
+            this.snapshotLock.readLock()
+                    .unlock();
+        }
+    }
+
     @Override
     public void flushChanges() {
-        if (!this.isDirty) {
-            return;
+        this.pipeline.acquireUninterruptibly();
+
+        try {
+            // Queued and asynchronous flushes may run after the instance was closed
+            if (this.env.isClosed()) {
+                return;
+            }
+
+            // The next snapshot is prepared while the previous one may still be committing
+            this.prepareSnapshot();
+
+            // Even without own changes, snapshots prepared by other threads have to be committed before returning
+            this.commitLock.lock();
+
+            try {
+                this.commitSnapshots();
+            } finally {
+                this.commitLock.unlock();
+            }
+        } finally {
+            this.pipeline.release();
         }
+    }
 
-        this.lock.writeLock()
-                .lock();
+    @Override
+    public CompletableFuture<Void> flushAsync() {
+        return CompletableFuture.runAsync(() -> {
+            this.flushChanges();
+
+            if (this.durability != CesiumConfig.Durability.STRICT) {
+                this.forceSync();
+            }
+        }, FLUSH_EXECUTOR);
+    }
+
+    private void prepareSnapshot() {
+        this.prepareLock.lock();
 
         try {
-            this.commitTransaction();
+            if (!this.isDirty) {
+                return;
+            }
+
             this.isDirty = false;
+
+            final long pendingBytes = this.commitScheduler.reset();
+            this.committingBytes.addAndGet(pendingBytes);
+
+            this.snapshotLock.writeLock()
+                    .lock();
+
+            try {
+                this.snapshotCreate();
+            } finally {
+                this.snapshotLock.writeLock()
+                        .unlock();
+            }
+
+            final PreparedSnapshot snapshot;
+
+            try {
+                // Sorted outside the commit lock, so a running commit is not held up by it
+                final List<AbstractKVTransaction.Changes> changes = this.snapshotChanges();
+
+                // Measuring the snapshot waits for all of its values to be compressed
+                snapshot = new PreparedSnapshot(changes, this.snapshotSize(), pendingBytes);
+            } catch (final Throwable t) {
+                // Nothing was queued for the commit, the changes stay pending instead
+                this.snapshotRestore(pendingBytes);
+                throw t;
+            }
+
+            synchronized (this.preparedSnapshots) {
+                this.preparedSnapshots.addLast(snapshot);
+            }
         } finally {
-            this.lock.writeLock()
-                    .unlock();
+            this.prepareLock.unlock();
         }
     }
 
-    private void commitTransaction() {
-        this.snapshotCreate();
+    @Override
+    public boolean commitDue() {
+        return this.isDirty && this.commitScheduler.isDue();
+    }
+
+    @Override
+    public void requestCommit() {
+        this.commitScheduler.request();
+    }
+
+    @Override
+    public BacklogStats getBacklog() {
+        final int committingSnapshots;
+
+        synchronized (this.preparedSnapshots) {
+            committingSnapshots = this.preparedSnapshots.size();
+        }
+
+        return new BacklogStats(this.commitScheduler.pendingBytes(), this.commitScheduler.pendingEntries(),
+                this.committingBytes.get(), committingSnapshots, this.stalls.sum(), this.arena.reservedBytes());
+    }
+
+    void markDirty(final long bytes) {
+        this.isDirty = true;
+        this.commitScheduler.record(bytes);
+
+        final long backlog = this.commitScheduler.pendingBytes() + this.committingBytes.get();
+
+        if (backlog >= this.backlogHardLimit) {
+            // Changes are added faster than they are committed, the writer has to help instead of buffering more
+            this.stalls.increment();
+
+            if (this.lock.getReadHoldCount() == 0 && this.snapshotLock.getReadHoldCount() == 0) {
+                this.flushChanges();
+            } else {
+                // Growing the map waits for all readers and taking a snapshot for all atomic writers, this thread may
+                // be one of them
+                this.queueFlush();
+            }
+        } else if (backlog >= this.backlogSoftLimit) {
+            this.commitScheduler.request();
+        }
+    }
+
+    private void queueFlush() {
+        if (!this.flushQueued.compareAndSet(false, true)) {
+            return;
+        }
+
+        FLUSH_EXECUTOR.execute(() -> {
+            try {
+                this.flushChanges();
+            } catch (final RuntimeException e) {
+                this.logger.error("Failed to commit changes", e);
+            } finally {
+                this.flushQueued.set(false);
+            }
+        });
+    }
+
+    // Commits all prepared snapshots in order, including those prepared by other threads in the meantime
+    private void commitSnapshots() {
+        while (true) {
+            final PreparedSnapshot snapshot;
+
+            synchronized (this.preparedSnapshots) {
+                if (this.preparedSnapshots.isEmpty()) {
+                    return;
+                }
+
+                snapshot = this.preparedSnapshots.getFirst();
+            }
 
+            this.commitTransaction(snapshot);
+
+            synchronized (this.preparedSnapshots) {
+                this.preparedSnapshots.removeFirst();
+            }
+
+            this.committingBytes.addAndGet(-snapshot.pendingBytes());
+        }
+    }
+
+    private void commitTransaction(final PreparedSnapshot snapshot) {
+        // Resizing the map is not possible while another write transaction is open, so this happens here
+        this.reserveSpace(snapshot.size());
+
+        final List<ChangeRange> slice = new ArrayList<>();
+
+        long sliceBytes = 0L;
+        long sliceEntries = 0L;
+
+        for (final AbstractKVTransaction.Changes changes : snapshot.changes()) {
+            int from = 0;
+
+            for (int index = 0; index < changes.count(); index++) {
+                final long bytes = AbstractKVTransaction.entrySize(changes.value(index));
+
+                if (sliceEntries > 0 && (sliceBytes + bytes > this.sliceMaxBytes || sliceEntries + 1 > this.sliceMaxEntries)) {
+                    if (index > from) {
+                        slice.add(new ChangeRange(changes, from, index));
+                    }
+
+                    this.commitSlice(slice);
+
+                    slice.clear();
+                    sliceBytes = 0L;
+                    sliceEntries = 0L;
+                    from = index;
+                }
+
+                sliceBytes += bytes;
+                sliceEntries++;
+            }
+
+            if (changes.count() > from) {
+                slice.add(new ChangeRange(changes, from, changes.count()));
+            }
+        }
+
+        if (!slice.isEmpty()) {
+            this.commitSlice(slice);
+        }
+
+        this.snapshotClear();
+    }
+
+    private void commitSlice(final List<ChangeRange> slice) {
         for (int tries = 1; tries < MAX_COMMIT_TRIES + 1; tries++) {
-            try (final Txn<?> txn = this.prepareTransaction()) {
+            try (final Txn<?> txn = this.prepareTransaction(slice)) {
                 txn.commit();
 
                 break;
             } catch (final LmdbException l) {
                 if (l instanceof Env.MapFullException) {
-                    this.growMap();
+                    this.growMap(0L);
 
                     tries--;
                     continue;
@@ -127,20 +543,14 @@ public class LMDBInstance implements IDBInstance {
                 throw new RuntimeException("Could not commit transactions!");
             }
         }
-
-        this.snapshotClear();
     }
 
-    private Txn<?> prepareTransaction() throws LmdbException {
-        final Iterator<KVTransaction<?, ?>> it = this.transactions.values()
-                .iterator();
-
-        final Txn<byte[]> txn = this.env.txnWrite();
+    private Txn<?> prepareTransaction(final List<ChangeRange> slice) throws LmdbException {
+        final Txn<DirectBuffer> txn = this.env.txnWrite();
 
         try {
-            while (it.hasNext()) {
-                KVTransaction<?, ?> transaction = it.next();
-                transaction.addChanges(txn);
+            for (final ChangeRange range : slice) {
+                range.changes().write(txn, range.from(), range.to());
             }
         } catch (LmdbException l) {
             txn.abort();
@@ -151,24 +561,78 @@ public class LMDBInstance implements IDBInstance {
     }
 
     private void snapshotCreate() {
-        for (final KVTransaction<?, ?> txn : this.transactions.values()) {
+        for (final AbstractKVTransaction<?, ?> txn : this.transactions.values()) {
             txn.createSnapshot();
         }
     }
 
+    private List<AbstractKVTransaction.Changes> snapshotChanges() {
+        final List<AbstractKVTransaction.Changes> changes = new ArrayList<>(this.transactions.size());
+
+        for (final AbstractKVTransaction<?, ?> txn : this.transactions.values()) {
+            changes.add(txn.sortedChanges());
+        }
+
+        return changes;
+    }
+
+    private void snapshotRestore(final long pendingBytes) {
+        for (final AbstractKVTransaction<?, ?> txn : this.transactions.values()) {
+            txn.restoreSnapshot();
+        }
+
+        this.committingBytes.addAndGet(-pendingBytes);
+        this.commitScheduler.restore(pendingBytes);
+
+        this.isDirty = true;
+    }
+
     private void snapshotClear() {
-        for (final KVTransaction<?, ?> txn : this.transactions.values()) {
+        for (final AbstractKVTransaction<?, ?> txn : this.transactions.values()) {
             txn.clearSnapshot();
         }
     }
 
-    private void growMap() {
+    private long snapshotSize() {
+        long size = 0;
+
+        for (final AbstractKVTransaction<?, ?> txn : this.transactions.values()) {
+            size += txn.snapshotSize();
+        }
+
+        return size;
+    }
+
+    // Grow the map up front instead of replaying a large commit after it ran out of space
+    private void reserveSpace(final long bytes) {
+        final EnvInfo info = this.env.info();
+
+        final long used = (info.lastPageNumber + 1) * this.pageSize;
+
+        // Pages are copied on write and are rarely filled completely
+        final long required = used + bytes * 2;
+
+        if (required > info.mapSize) {
+            this.growMap(required);
+        }
+    }
+
+    private void growMap(final long requiredSize) {
         EnvInfo info = this.env.info();
 
         long oldSize = info.mapSize;
-        long newSize = oldSize + (long) this.resizeStep;
+        long newSize = this.growthPolicy.nextSize(oldSize, requiredSize);
+
+        // The map is remapped while resizing, no reader may access it in the meantime
+        this.lock.writeLock()
+                .lock();
 
-        this.env.setMapSize(newSize);
+        try {
+            this.env.setMapSize(newSize);
+        } finally {
+            this.lock.writeLock()
+                    .unlock();
+        }
 
         if (this.logsMapGrows) {
             this.logger.info("Grew map size from {} to {} MB", (oldSize / 1024 / 1024), (newSize / 1024 / 1024));
@@ -176,13 +640,13 @@ public class LMDBInstance implements IDBInstance {
     }
 
     public void createCopy(final Path path) {
-        this.lock.writeLock()
+        this.lock.readLock()
                 .lock();
 
         try {
             this.env.copy(path.toFile(), CopyFlags.MDB_CP_COMPACT);
         } finally {
-            this.lock.writeLock()
+            this.lock.readLock()
                     .unlock();
         }
     }
@@ -192,22 +656,41 @@ public class LMDBInstance implements IDBInstance {
         this.lock.readLock()
                 .lock();
 
+        final Txn<DirectBuffer> txn = this.readers.acquire();
+
         try {
             return this.databases.values().stream()
-                    .map(KVDatabase::getStats)
+                    .map(database -> database.getStats(txn))
                     .toList();
         } finally {
+            this.readers.release(txn);
+
             this.lock.readLock()
                     .unlock();
         }
 
     }
 
+    @Override
+    public KeyFormat keyFormat() {
+        return this.keyFormat;
+    }
+
     @Override
     public ReentrantReadWriteLock getLock() {
         return this.lock;
     }
 
+    private record ChangeRange(AbstractKVTransaction.Changes changes, int from, int to) {
+    }
+
+    /**
+     * A snapshot waiting for its commit, with its changes already sorted. The size is measured once compressed,
+     * pending bytes are counted as they were added.
+     */
+    private record PreparedSnapshot(List<AbstractKVTransaction.Changes> changes, long size, long pendingBytes) {
+    }
+
     @Override
     public boolean closed() {
         return this.env.isClosed();
@@ -217,10 +700,32 @@ public class LMDBInstance implements IDBInstance {
     public void close() {
         this.flushChanges();
 
-        for (KVDatabase<?, ?> database : this.databases.values()) {
-            database.close();
+        // Wait for commits which are still running on other threads
+        this.pipeline.acquireUninterruptibly(this.pipelineDepth);
+
+        if (this.syncTask != null) {
+            this.syncTask.cancel(false);
         }
 
-        this.env.close();
+        this.syncLock.lock();
+
+        try {
+            if (this.durability != CesiumConfig.Durability.STRICT) {
+                this.env.sync(true);
+            }
+
+            this.readers.close();
+
+            for (KVDatabase<?, ?> database : this.databases.values()) {
+                database.close();
+            }
+
+            this.env.close();
+        } finally {
+            this.syncLock.unlock();
+
+            // Flushes waiting for a permit find the instance closed
+            this.pipeline.release(this.pipelineDepth);
+        }
     }
 }
@@ -0,0 +1,25 @@
+package de.yamayaki.cesium.common.lmdb;
+
+/**
+ * Grows the map geometrically: every step is as large as the current map, bounded by a floor and a ceiling. Small
+ * worlds grow in small steps, large worlds need only a few resizes for big commits.
+ */
+public class MapGrowthPolicy {
+    private final long minStep;
+    private final long maxStep;
+
+    public MapGrowthPolicy(final long minStep, final long maxStep) {
+        this.minStep = minStep;
+        this.maxStep = Math.max(minStep, maxStep);
+    }
+
+    public long nextSize(final long currentSize, final long requiredSize) {
+        long size = currentSize;
+
+        do {
+            size += Math.min(Math.max(size, this.minStep), this.maxStep);
+        } while (size < requiredSize);
+
+        return size;
+    }
+}
@@ -0,0 +1,98 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import java.util.ArrayDeque;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pending changes split into stripes by key hash, so writers of different keys rarely contend for the same lock.
+ * Each stripe keeps its own queue of snapshots; taking a snapshot swaps the map of every stripe instead of copying
+ * any entries.
+ */
+final class PendingStripes<M> {
+    private static final int STRIPES = 16;
+
+    private final Supplier<M> factory;
+    private final Stripe<M>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    PendingStripes(final Supplier<M> factory) {
+        this.factory = factory;
+        this.stripes = (Stripe<M>[]) new Stripe<?>[STRIPES];
+
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe<>(factory.get());
+        }
+    }
+
+    /**
+     * Returns the stripe for a (well mixed) key hash. Access to it has to be synchronized on the stripe.
+     */
+    Stripe<M> stripe(final int hash) {
+        return this.stripes[hash & (STRIPES - 1)];
+    }
+
+    void createSnapshot() {
+        for (final Stripe<M> stripe : this.stripes) {
+            final M next = this.factory.get();
+
+            synchronized (stripe) {
+                stripe.snapshots.addLast(stripe.pending);
+                stripe.pending = next;
+            }
+        }
+    }
+
+    /**
+     * Passes the maps of the newest snapshot to the consumer. Snapshots are not modified after they were taken, so
+     * this happens without holding any lock.
+     */
+    void forEachNewest(final Consumer<M> consumer) {
+        for (final Stripe<M> stripe : this.stripes) {
+            final M snapshot;
+
+            synchronized (stripe) {
+                snapshot = stripe.snapshots.getLast();
+            }
+
+            consumer.accept(snapshot);
+        }
+    }
+
+    /**
+     * Drops the oldest snapshot and passes its maps to the consumer, after they are no longer visible to lookups.
+     */
+    void clearSnapshot(final Consumer<M> consumer) {
+        for (final Stripe<M> stripe : this.stripes) {
+            final M snapshot;
+
+            synchronized (stripe) {
+                snapshot = stripe.snapshots.removeFirst();
+            }
+
+            consumer.accept(snapshot);
+        }
+    }
+
+    /**
+     * Drops the newest snapshot again and merges its maps into the pending ones. The merge function receives the
+     * snapshot first and returns the new pending map, changes added after the snapshot was taken have to win.
+     */
+    void restoreSnapshot(final BinaryOperator<M> merge) {
+        for (final Stripe<M> stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.pending = merge.apply(stripe.snapshots.removeLast(), stripe.pending);
+            }
+        }
+    }
+
+    static final class Stripe<M> {
+        final ArrayDeque<M> snapshots = new ArrayDeque<>();
+        M pending;
+
+        private Stripe(final M pending) {
+            this.pending = pending;
+        }
+    }
+}
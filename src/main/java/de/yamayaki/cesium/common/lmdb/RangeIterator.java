@@ -0,0 +1,126 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.api.database.ICloseableIterator;
+import de.yamayaki.cesium.api.io.ICompressor;
+import de.yamayaki.cesium.api.io.ISerializer;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.lmdbjava.Cursor;
+import org.lmdbjava.GetOp;
+import org.lmdbjava.Txn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class RangeIterator<K> implements ICloseableIterator<Map.Entry<K, byte[]>> {
+    private final ReentrantReadWriteLock lock;
+    private final ReaderPool readers;
+    private final Txn<DirectBuffer> txn;
+
+    private final Cursor<DirectBuffer> cursor;
+    private final ISerializer<K> serializer;
+    private final ICompressor compressor;
+
+    private final byte[][] from;
+    private final byte[][] to;
+    private final UnsafeBuffer seekKey = new UnsafeBuffer(ByteBuffer.allocateDirect(511));
+
+    private int range = -1;
+    private boolean hasNext;
+
+    /**
+     * Ranges have to be sorted by their start key and must not overlap.
+     */
+    public RangeIterator(final ReentrantReadWriteLock lock, final ReaderPool readers, final Txn<DirectBuffer> txn, final Cursor<DirectBuffer> cursor,
+                         final ISerializer<K> serializer, final ICompressor compressor, final byte[][] from, final byte[][] to) {
+        this.lock = lock;
+        this.readers = readers;
+        this.txn = txn;
+
+        this.cursor = cursor;
+        this.serializer = serializer;
+        this.compressor = compressor;
+
+        this.from = from;
+        this.to = to;
+
+        this.hasNext = this.seekNextRange();
+    }
+
+    private boolean seekNextRange() {
+        while (++this.range < this.from.length) {
+            final byte[] start = this.from[this.range];
+
+            this.seekKey.wrap(this.seekKey.byteBuffer(), 0, start.length);
+            this.seekKey.putBytes(0, start);
+
+            if (this.cursor.get(this.seekKey, GetOp.MDB_SET_RANGE) && this.inRange()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean inRange() {
+        return compareUnsigned(this.cursor.key(), this.to[this.range]) <= 0;
+    }
+
+    private static int compareUnsigned(final DirectBuffer a, final byte[] b) {
+        final int length = Math.min(a.capacity(), b.length);
+
+        for (int i = 0; i < length; i++) {
+            final int cmp = Byte.compareUnsigned(a.getByte(i), b[i]);
+
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+
+        return Integer.compare(a.capacity(), b.length);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.hasNext;
+    }
+
+    @Override
+    public Map.Entry<K, byte[]> next() {
+        if (!this.hasNext) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            final DirectBuffer buffer = this.cursor.key();
+            final byte[] bytes = new byte[buffer.capacity()];
+
+            buffer.getBytes(0, bytes);
+
+            final K key = this.serializer.deserialize(bytes);
+            final byte[] value = this.compressor.decompress(this.cursor.val());
+
+            this.hasNext = (this.cursor.next() && this.inRange()) || this.seekNextRange();
+
+            return new AbstractMap.SimpleImmutableEntry<>(key, value);
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not deserialize key", e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            this.cursor.close();
+        } finally {
+            this.readers.release(this.txn);
+
+            this.lock.readLock()
+                    .unlock();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import org.agrona.DirectBuffer;
+import org.lmdbjava.Env;
+import org.lmdbjava.Txn;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+
+public class ReaderPool {
+    private final Env<DirectBuffer> env;
+
+    private final ConcurrentLinkedDeque<Txn<DirectBuffer>> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+
+    public ReaderPool(final Env<DirectBuffer> env, final int maxReaders) {
+        this.env = env;
+        this.permits = new Semaphore(maxReaders);
+    }
+
+    public Txn<DirectBuffer> acquire() {
+        this.permits.acquireUninterruptibly();
+
+        final Txn<DirectBuffer> txn = this.idle.pollFirst();
+
+        try {
+            if (txn == null) {
+                return this.env.txnRead();
+            }
+
+            txn.renew();
+
+            return txn;
+        } catch (final RuntimeException e) {
+            if (txn != null) {
+                txn.close();
+            }
+
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    public void release(final Txn<DirectBuffer> txn) {
+        try {
+            txn.reset();
+            this.idle.offerFirst(txn);
+        } catch (final RuntimeException e) {
+            txn.close();
+            throw e;
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    public void close() {
+        Txn<DirectBuffer> txn;
+
+        while ((txn = this.idle.pollFirst()) != null) {
+            txn.close();
+        }
+    }
+}
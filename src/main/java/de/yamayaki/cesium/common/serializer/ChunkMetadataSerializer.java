@@ -0,0 +1,52 @@
+package de.yamayaki.cesium.common.serializer;
+
+import de.yamayaki.cesium.api.database.ChunkMetadata;
+import de.yamayaki.cesium.api.io.ISerializer;
+import org.agrona.MutableDirectBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+public class ChunkMetadataSerializer implements ISerializer<ChunkMetadata> {
+    private static final int STORED_SIZE_OFFSET = Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    // Data version, inhabited time, last update, raw size and stored size, followed by the status
+    private static final int FIXED_SIZE = STORED_SIZE_OFFSET + Integer.BYTES;
+
+    @Override
+    public byte[] serialize(final ChunkMetadata input) {
+        final byte[] status = input.status().getBytes(StandardCharsets.UTF_8);
+
+        return ByteBuffer.allocate(FIXED_SIZE + status.length)
+                .putInt(input.dataVersion())
+                .putLong(input.inhabitedTime())
+                .putLong(input.lastUpdate())
+                .putInt(input.rawSize())
+                .putInt(input.storedSize())
+                .put(status)
+                .array();
+    }
+
+    @Override
+    public ChunkMetadata deserialize(final byte[] input) {
+        final ByteBuffer buffer = ByteBuffer.wrap(input);
+
+        final int dataVersion = buffer.getInt();
+        final long inhabitedTime = buffer.getLong();
+        final long lastUpdate = buffer.getLong();
+        final int rawSize = buffer.getInt();
+        final int storedSize = buffer.getInt();
+
+        final String status = new String(input, FIXED_SIZE, input.length - FIXED_SIZE, StandardCharsets.UTF_8);
+
+        return new ChunkMetadata(status, dataVersion, inhabitedTime, lastUpdate, rawSize, storedSize);
+    }
+
+    /**
+     * Replaces the stored size of a serialized record, without deserializing it.
+     */
+    public static void putStoredSize(final MutableDirectBuffer record, final int storedSize) {
+        record.putInt(STORED_SIZE_OFFSET, storedSize, ByteOrder.BIG_ENDIAN);
+    }
+}
@@ -1,9 +1,13 @@
 package de.yamayaki.cesium.common.serializer;
 
-import de.yamayaki.cesium.api.io.ISerializer;
+import de.yamayaki.cesium.api.database.KeyRange;
+import de.yamayaki.cesium.api.io.IChunkKeySerializer;
 import net.minecraft.world.level.ChunkPos;
 
-public class ChunkPosSerializer implements ISerializer<ChunkPos> {
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChunkPosSerializer implements IChunkKeySerializer {
     @Override
     public byte[] serialize(final ChunkPos input) {
         final int x = input.x;
@@ -22,4 +26,31 @@ public class ChunkPosSerializer implements ISerializer<ChunkPos> {
 
         return new ChunkPos(x, z);
     }
+
+    @Override
+    public long encode(final long chunkPos) {
+        return (long) ChunkPos.getX(chunkPos) << 32 | (ChunkPos.getZ(chunkPos) & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public long decode(final long key) {
+        return ChunkPos.asLong((int) (key >>> 32), (int) key);
+    }
+
+    @Override
+    public List<KeyRange<ChunkPos>> area(final int minX, final int minZ, final int maxX, final int maxZ) {
+        final List<KeyRange<ChunkPos>> ranges = new ArrayList<>();
+
+        // Keys are ordered by x, then z. Negative z sort after positive ones, so split at zero
+        for (int x = minX; x <= maxX; x++) {
+            if (minZ < 0 && maxZ >= 0) {
+                ranges.add(new KeyRange<>(new ChunkPos(x, 0), new ChunkPos(x, maxZ)));
+                ranges.add(new KeyRange<>(new ChunkPos(x, minZ), new ChunkPos(x, -1)));
+            } else {
+                ranges.add(new KeyRange<>(new ChunkPos(x, minZ), new ChunkPos(x, maxZ)));
+            }
+        }
+
+        return ranges;
+    }
 }
@@ -1,6 +1,5 @@
 package de.yamayaki.cesium.common.serializer;
 
-import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import de.yamayaki.cesium.api.io.IScannable;
 import de.yamayaki.cesium.api.io.ISerializer;
@@ -8,18 +7,42 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NbtAccounter;
 import net.minecraft.nbt.NbtIo;
 import net.minecraft.nbt.StreamTagVisitor;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.io.ExpandableDirectBufferOutputStream;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 public class CompoundTagSerializer implements ISerializer<CompoundTag>, IScannable<StreamTagVisitor> {
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
     @Override
     public byte[] serialize(final CompoundTag input) throws IOException {
-        final ByteArrayDataOutput output = ByteStreams.newDataOutput(2048);
+        final DirectBuffer buffer = this.serializeToBuffer(input);
 
-        NbtIo.write(input, output);
+        final byte[] output = new byte[buffer.capacity()];
+        buffer.getBytes(0, output);
 
-        return output.toByteArray();
+        return output;
+    }
+
+    @Override
+    public DirectBuffer serializeToBuffer(final CompoundTag input) throws IOException {
+        final Output output = OUTPUT.get();
+        output.stream.wrap(output.buffer);
+
+        NbtIo.write(input, output.data);
+        output.data.flush();
+
+        output.view.wrap(output.buffer, 0, output.stream.position());
+
+        return output.view;
     }
 
     @Override
@@ -28,9 +51,33 @@ public class CompoundTagSerializer implements ISerializer<CompoundTag>, IScannab
         return NbtIo.read(dataInput);
     }
 
+    @Override
+    public CompoundTag deserialize(final byte[] input, final int offset, final int length) throws IOException {
+        return NbtIo.read(new DataInputStream(new ByteArrayInputStream(input, offset, length)));
+    }
+
+    @Override
+    public CompoundTag deserialize(final InputStream input) throws IOException {
+        return NbtIo.read(new DataInputStream(input));
+    }
+
     @Override
     public void scan(final byte[] input, final StreamTagVisitor scanner) throws IOException {
         final DataInput dataInput = ByteStreams.newDataInput(input);
         NbtIo.parse(dataInput, scanner, NbtAccounter.unlimitedHeap());
     }
+
+    // Parsing returns as soon as the visitor halts or breaks out of the root tag
+    @Override
+    public void scan(final InputStream input, final StreamTagVisitor scanner) throws IOException {
+        NbtIo.parse(new DataInputStream(input), scanner, NbtAccounter.unlimitedHeap());
+    }
+
+    // The buffer only grows, so after a few saves no thread has to resize it anymore
+    private static final class Output {
+        private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(64 * 1024);
+        private final ExpandableDirectBufferOutputStream stream = new ExpandableDirectBufferOutputStream();
+        private final DataOutputStream data = new DataOutputStream(this.stream);
+        private final UnsafeBuffer view = new UnsafeBuffer();
+    }
 }
@@ -0,0 +1,171 @@
+package de.yamayaki.cesium.common.serializer;
+
+import de.yamayaki.cesium.api.database.KeyRange;
+import de.yamayaki.cesium.api.io.IChunkKeySerializer;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders chunk positions by region x, region z and then by Morton (Z-order) code within the region, so chunks
+ * that are loaded together end up on the same pages. Region coordinates are biased to make the byte-wise order of
+ * LMDB match their numeric order.
+ * <p>
+ * Layout: 27 bits region x, 27 bits region z, 10 bits interleaved local coordinates.
+ */
+public class RegionChunkPosSerializer implements IChunkKeySerializer {
+    private static final int REGION_BIAS = 1 << 26;
+    private static final long REGION_MASK = (1L << 27) - 1;
+
+    @Override
+    public byte[] serialize(final ChunkPos input) {
+        final long key = toKey(input.x, input.z);
+
+        return new byte[]{
+                (byte) (key >>> 56), (byte) (key >>> 48), (byte) (key >>> 40), (byte) (key >>> 32),
+                (byte) (key >>> 24), (byte) (key >>> 16), (byte) (key >>> 8), (byte) key
+        };
+    }
+
+    @Override
+    public ChunkPos deserialize(final byte[] input) {
+        long key = 0L;
+
+        for (int i = 0; i < 8; i++) {
+            key = key << 8 | (input[i] & 0xFF);
+        }
+
+        return fromKey(key);
+    }
+
+    public static long toKey(final int x, final int z) {
+        final long regionX = (x >> 5) + REGION_BIAS;
+        final long regionZ = (z >> 5) + REGION_BIAS;
+
+        return regionX << 37 | regionZ << 10 | interleave(x & 31, z & 31);
+    }
+
+    public static ChunkPos fromKey(final long key) {
+        return new ChunkPos(chunkX(key), chunkZ(key));
+    }
+
+    private static int chunkX(final long key) {
+        final int regionX = (int) ((key >>> 37) & REGION_MASK) - REGION_BIAS;
+        return regionX << 5 | compact((int) key & 1023);
+    }
+
+    private static int chunkZ(final long key) {
+        final int regionZ = (int) ((key >>> 10) & REGION_MASK) - REGION_BIAS;
+        return regionZ << 5 | compact(((int) key & 1023) >>> 1);
+    }
+
+    @Override
+    public long encode(final long chunkPos) {
+        return toKey(ChunkPos.getX(chunkPos), ChunkPos.getZ(chunkPos));
+    }
+
+    @Override
+    public long decode(final long key) {
+        return ChunkPos.asLong(chunkX(key), chunkZ(key));
+    }
+
+    private static int interleave(final int x, final int z) {
+        return spread(x) | spread(z) << 1;
+    }
+
+    private static int spread(final int v) {
+        int r = 0;
+
+        for (int i = 0; i < 5; i++) {
+            r |= (v >>> i & 1) << (i * 2);
+        }
+
+        return r;
+    }
+
+    private static int compact(final int v) {
+        int r = 0;
+
+        for (int i = 0; i < 5; i++) {
+            r |= (v >>> (i * 2) & 1) << i;
+        }
+
+        return r;
+    }
+
+    @Override
+    public List<KeyRange<ChunkPos>> area(final int minX, final int minZ, final int maxX, final int maxZ) {
+        final RangeCollector collector = new RangeCollector();
+
+        for (int regionX = minX >> 5; regionX <= maxX >> 5; regionX++) {
+            for (int regionZ = minZ >> 5; regionZ <= maxZ >> 5; regionZ++) {
+                final int localMinX = Math.max(minX - (regionX << 5), 0);
+                final int localMinZ = Math.max(minZ - (regionZ << 5), 0);
+                final int localMaxX = Math.min(maxX - (regionX << 5), 31);
+                final int localMaxZ = Math.min(maxZ - (regionZ << 5), 31);
+
+                collector.collect(toKey(regionX << 5, regionZ << 5), 0, 0, 32, localMinX, localMinZ, localMaxX, localMaxZ);
+            }
+        }
+
+        return collector.finish();
+    }
+
+    private static class RangeCollector {
+        private final List<KeyRange<ChunkPos>> ranges = new ArrayList<>();
+
+        private boolean open = false;
+        private long from;
+        private long to;
+
+        // Splits the region into quadrants until each one is either fully inside or outside the area. Quadrants
+        // are visited in Morton order, so adjacent ones can be merged into a single range.
+        void collect(final long base, final int x, final int z, final int size,
+                     final int minX, final int minZ, final int maxX, final int maxZ) {
+            if (x > maxX || z > maxZ || x + size - 1 < minX || z + size - 1 < minZ) {
+                return;
+            }
+
+            if (x >= minX && z >= minZ && x + size - 1 <= maxX && z + size - 1 <= maxZ) {
+                final long start = base | interleave(x, z);
+                this.add(start, start + (long) size * size - 1);
+
+                return;
+            }
+
+            final int half = size >> 1;
+
+            this.collect(base, x, z, half, minX, minZ, maxX, maxZ);
+            this.collect(base, x + half, z, half, minX, minZ, maxX, maxZ);
+            this.collect(base, x, z + half, half, minX, minZ, maxX, maxZ);
+            this.collect(base, x + half, z + half, half, minX, minZ, maxX, maxZ);
+        }
+
+        private void add(final long start, final long end) {
+            if (this.open && this.to + 1 == start) {
+                this.to = end;
+                return;
+            }
+
+            this.flush();
+
+            this.open = true;
+            this.from = start;
+            this.to = end;
+        }
+
+        private void flush() {
+            if (this.open) {
+                this.ranges.add(new KeyRange<>(fromKey(this.from), fromKey(this.to)));
+            }
+        }
+
+        List<KeyRange<ChunkPos>> finish() {
+            this.flush();
+            this.open = false;
+
+            return this.ranges;
+        }
+    }
+}
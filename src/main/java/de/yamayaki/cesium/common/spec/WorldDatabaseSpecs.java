@@ -1,16 +1,20 @@
 package de.yamayaki.cesium.common.spec;
 
-import de.yamayaki.cesium.api.database.DatabaseSpec;
+import de.yamayaki.cesium.api.database.ChunkDatabaseSpec;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.world.level.ChunkPos;
 
 public class WorldDatabaseSpecs {
-    public static final DatabaseSpec<ChunkPos, CompoundTag> CHUNK_DATA =
-            new DatabaseSpec<>("chunks", ChunkPos.class, CompoundTag.class, 8 * 1024 * 1024);
+    // Kept next to CHUNK_DATA, so chunks can be inspected without decompressing them
+    public static final ChunkDatabaseSpec<ChunkMetadata> CHUNK_METADATA =
+            new ChunkDatabaseSpec<>("chunk_meta", ChunkMetadata.class, 256 * 1024, false);
 
-    public static final DatabaseSpec<ChunkPos, CompoundTag> POI =
-            new DatabaseSpec<>("poi", ChunkPos.class, CompoundTag.class, 512 * 1024);
+    public static final ChunkDatabaseSpec<CompoundTag> CHUNK_DATA =
+            new ChunkDatabaseSpec<>("chunks", CompoundTag.class, 8 * 1024 * 1024, CHUNK_METADATA);
 
-    public static final DatabaseSpec<ChunkPos, CompoundTag> ENTITY =
-            new DatabaseSpec<>("entity", ChunkPos.class, CompoundTag.class, 512 * 1024);
+    public static final ChunkDatabaseSpec<CompoundTag> POI =
+            new ChunkDatabaseSpec<>("poi", CompoundTag.class, 512 * 1024);
+
+    public static final ChunkDatabaseSpec<CompoundTag> ENTITY =
+            new ChunkDatabaseSpec<>("entity", CompoundTag.class, 512 * 1024);
 }
@@ -5,8 +5,12 @@ import com.github.luben.zstd.ZstdCompressCtx;
 import com.github.luben.zstd.ZstdDecompressCtx;
 import de.yamayaki.cesium.CesiumMod;
 import de.yamayaki.cesium.api.io.ICompressor;
+import de.yamayaki.cesium.common.buffer.ScratchBuffer;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class ZSTDCompressor implements ICompressor {
     private static final int compressionLevel = CesiumMod.config().compressionLevel();
@@ -15,6 +19,10 @@ public class ZSTDCompressor implements ICompressor {
     private final ZSTDDictionary dictionary = new ZSTDDictionary(compressionLevel);
     private final ThreadLocal<ZSTDContext> ctx = ThreadLocal.withInitial(this::createContext);
 
+    private final ScratchBuffer dstBuffer = new ScratchBuffer(64 * 1024);
+    private final ThreadLocal<UnsafeBuffer> dstView = ThreadLocal.withInitial(UnsafeBuffer::new);
+    private final ThreadLocal<ZSTDInputStream> inputStream = ThreadLocal.withInitial(() -> new ZSTDInputStream(this.dictionary));
+
     private ZSTDContext createContext() {
         return new ZSTDContext(usesDictionary, compressionLevel, dictionary);
     }
@@ -29,12 +37,25 @@ public class ZSTDCompressor implements ICompressor {
 
     @Override
     public byte[] compress(final byte[] input) {
-        final byte[] dst = new byte[(int) Zstd.compressBound(input.length)];
+        final DirectBuffer compressed = this.compress(input, 0, input.length);
+
+        final byte[] dst = new byte[compressed.capacity()];
+        compressed.getBytes(0, dst);
+
+        return dst;
+    }
+
+    @Override
+    public DirectBuffer compress(final byte[] input, final int offset, final int length) {
+        final byte[] dst = this.dstBuffer.get((int) Zstd.compressBound(length));
         final ZstdCompressCtx ctx = this.ctx.get().compress();
 
-        final int size = (int) checkError(ctx.compress(dst, input));
+        final int size = (int) checkError(ctx.compressByteArray(dst, 0, dst.length, input, offset, length));
+
+        final UnsafeBuffer view = this.dstView.get();
+        view.wrap(dst, 0, size);
 
-        return Arrays.copyOfRange(dst, 0, size);
+        return view;
     }
 
     @Override
@@ -48,4 +69,33 @@ public class ZSTDCompressor implements ICompressor {
 
         return dst;
     }
+
+    @Override
+    public byte[] decompress(final DirectBuffer input) {
+        final byte[] array = input.byteArray();
+
+        if (array != null && input.wrapAdjustment() == 0 && input.capacity() == array.length) {
+            return this.decompress(array);
+        }
+
+        // The frame is read where it is stored, e.g. in the memory map, instead of being copied to the heap first
+        final ZSTDInputStream stream = this.inputStream.get().open(input);
+
+        try (stream) {
+            final byte[] dst = new byte[(int) checkError(stream.contentSize())];
+
+            if (stream.readNBytes(dst, 0, dst.length) != dst.length || stream.read() != -1) {
+                throw new IllegalStateException("Frame does not match its content size");
+            }
+
+            return dst;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to decompress frame", e);
+        }
+    }
+
+    @Override
+    public InputStream decompressStream(final DirectBuffer input) {
+        return this.inputStream.get().open(input);
+    }
 }
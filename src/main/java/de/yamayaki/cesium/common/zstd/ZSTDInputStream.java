@@ -0,0 +1,148 @@
+package de.yamayaki.cesium.common.zstd;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import de.yamayaki.cesium.common.buffer.ByteBufferView;
+import org.agrona.DirectBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Decompresses a single frame in small steps, so the decompressed value never exists as a whole. Frames in off-heap
+ * memory, such as the memory map, are read in place. Instances are owned by one thread and reused for every value it
+ * reads, see {@link #open(DirectBuffer)}.
+ */
+public class ZSTDInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZSTDDictionary dictionary;
+    private final ZstdDecompressCtx ctx = new ZstdDecompressCtx();
+
+    private final ByteBufferView view = new ByteBufferView();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer dst = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private ByteBuffer src = this.buffer;
+
+    private DirectBuffer input = null;
+    private int inputPosition = 0;
+    private boolean finished = true;
+
+    public ZSTDInputStream(final ZSTDDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Starts reading the given frame. Whatever was left of the previous frame is discarded.
+     */
+    public ZSTDInputStream open(final DirectBuffer input) {
+        this.input = input;
+        this.inputPosition = 0;
+        this.finished = false;
+
+        this.dst.clear().limit(0);
+        this.ctx.reset();
+
+        if (input.byteArray() == null) {
+            this.src = this.view.wrap(input.addressOffset(), input.capacity());
+        } else {
+            this.src = this.buffer;
+            this.refill();
+        }
+
+        final long dictId = Zstd.getDictIdFromFrameBuffer(this.src);
+
+        if (dictId != 0) {
+            this.ctx.loadDict(this.dictionary.decompressDictionary(dictId));
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the decompressed size declared by the frame header. Only valid before reading from the frame.
+     */
+    public long contentSize() {
+        return Zstd.getDirectByteBufferFrameContentSize(this.src, this.src.position(), this.src.remaining());
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.dst.hasRemaining() && !this.decompress()) {
+            return -1;
+        }
+
+        return this.dst.get() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!this.dst.hasRemaining() && !this.decompress()) {
+            return -1;
+        }
+
+        final int length = Math.min(len, this.dst.remaining());
+        this.dst.get(b, off, length);
+
+        return length;
+    }
+
+    @Override
+    public int available() {
+        return this.dst.remaining();
+    }
+
+    // The rest of the frame is never decompressed
+    @Override
+    public void close() {
+        this.input = null;
+        this.src = this.buffer;
+        this.finished = true;
+
+        this.dst.clear().limit(0);
+    }
+
+    private boolean decompress() throws IOException {
+        while (!this.finished) {
+            if (!this.src.hasRemaining()) {
+                this.refill();
+            }
+
+            final boolean hadInput = this.src.hasRemaining();
+
+            this.dst.clear();
+            this.finished = this.ctx.decompressDirectByteBufferStream(this.dst, this.src);
+            this.dst.flip();
+
+            if (this.dst.hasRemaining()) {
+                return true;
+            }
+
+            if (!hadInput && !this.finished) {
+                throw new IOException("Truncated zstd frame");
+            }
+        }
+
+        return false;
+    }
+
+    // Only frames on the heap are copied, in parts
+    private void refill() {
+        if (this.src != this.buffer) {
+            return;
+        }
+
+        final int length = Math.min(BUFFER_SIZE, this.input.capacity() - this.inputPosition);
+
+        this.input.getBytes(this.inputPosition, this.src, 0, length);
+        this.inputPosition += length;
+
+        this.src.position(0).limit(length);
+    }
+}
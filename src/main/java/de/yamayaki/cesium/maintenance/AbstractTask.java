@@ -98,6 +98,8 @@ public abstract class AbstractTask {
     public enum Task {
         TO_ANVIL,
         TO_CESIUM,
-        COMPACT
+        COMPACT,
+        MIGRATE,
+        INDEX
     }
 }
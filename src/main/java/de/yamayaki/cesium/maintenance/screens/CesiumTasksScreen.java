@@ -39,6 +39,8 @@ public class CesiumTasksScreen extends Screen {
         layout.addChild(this.taskButton("Anvil → Cesium", AbstractTask.Task.TO_CESIUM));
         layout.addChild(this.taskButton("Cesium → Anvil", AbstractTask.Task.TO_ANVIL));
         layout.addChild(this.taskButton("Compact Database", AbstractTask.Task.COMPACT));
+        layout.addChild(this.taskButton("Migrate Key Format", AbstractTask.Task.MIGRATE));
+        layout.addChild(this.taskButton("Index Chunk Metadata", AbstractTask.Task.INDEX));
 
         layout.addChild(new SpacerElement(200, 20));
 
@@ -3,6 +3,8 @@ package de.yamayaki.cesium.maintenance.screens;
 import de.yamayaki.cesium.maintenance.AbstractTask;
 import de.yamayaki.cesium.maintenance.tasks.DatabaseCompact;
 import de.yamayaki.cesium.maintenance.tasks.DatabaseConvert;
+import de.yamayaki.cesium.maintenance.tasks.DatabaseIndex;
+import de.yamayaki.cesium.maintenance.tasks.DatabaseMigrate;
 import it.unimi.dsi.fastutil.booleans.BooleanConsumer;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.components.Button;
@@ -23,6 +25,8 @@ public class CesiumWorkScreen extends Screen {
         this.cesiumTask = switch (task) {
             case TO_ANVIL, TO_CESIUM -> new DatabaseConvert(task, levelAccess, registryAccess);
             case COMPACT -> new DatabaseCompact(levelAccess, registryAccess);
+            case MIGRATE -> new DatabaseMigrate(levelAccess, registryAccess);
+            case INDEX -> new DatabaseIndex(levelAccess, registryAccess);
         };
     }
 
@@ -1,6 +1,7 @@
 package de.yamayaki.cesium.maintenance.storage.cesium;
 
 import de.yamayaki.cesium.CesiumMod;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
 import de.yamayaki.cesium.api.database.ICloseableIterator;
 import de.yamayaki.cesium.api.database.IDBInstance;
 import de.yamayaki.cesium.common.spec.WorldDatabaseSpecs;
@@ -9,6 +10,7 @@ import net.minecraft.world.level.ChunkPos;
 import org.lmdbjava.LmdbException;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,7 +56,21 @@ public class CesiumChunkStorage implements IChunkStorage {
 
     @Override
     public void setChunkData(final ChunkPos chunkPos, final byte[] bytes) {
-        this.database.getTransaction(WorldDatabaseSpecs.CHUNK_DATA).addBytes(chunkPos, bytes);
+        // Converted chunks are indexed like saved ones, the stored size is filled in on commit
+        final ChunkMetadata metadata = bytes != null ? this.metadata(bytes) : null;
+
+        this.database.addAtomically(() -> {
+            this.database.getTransaction(WorldDatabaseSpecs.CHUNK_METADATA).add(chunkPos, metadata);
+            this.database.getTransaction(WorldDatabaseSpecs.CHUNK_DATA).addBytes(chunkPos, bytes);
+        });
+    }
+
+    private ChunkMetadata metadata(final byte[] bytes) {
+        try {
+            return ChunkMetadata.of(this.database.getDatabase(WorldDatabaseSpecs.CHUNK_DATA).getValueSerializer().deserialize(bytes), bytes.length);
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not read chunk metadata", e);
+        }
     }
 
     @Override
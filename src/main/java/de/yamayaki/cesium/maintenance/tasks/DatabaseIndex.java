@@ -0,0 +1,105 @@
+package de.yamayaki.cesium.maintenance.tasks;
+
+import de.yamayaki.cesium.CesiumMod;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
+import de.yamayaki.cesium.api.database.IChunkKVDatabase;
+import de.yamayaki.cesium.api.database.IChunkKVTransaction;
+import de.yamayaki.cesium.api.database.ICloseableLongIterator;
+import de.yamayaki.cesium.api.database.IDBInstance;
+import de.yamayaki.cesium.common.spec.WorldDatabaseSpecs;
+import de.yamayaki.cesium.maintenance.AbstractTask;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.storage.LevelStorageSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the metadata records of chunks which were stored without one, e.g. before the index existed or by a key
+ * format migration of such a world. Chunks which already have a record are skipped.
+ */
+public class DatabaseIndex extends AbstractTask {
+    private static final int BATCH_SIZE = 1024;
+
+    public DatabaseIndex(final LevelStorageSource.LevelStorageAccess levelStorageAccess, final RegistryAccess registryAccess) {
+        super("Index", levelStorageAccess, registryAccess);
+    }
+
+    @Override
+    protected void runTasks() {
+        for (final ResourceKey<Level> levelResourceKey : this.levels) {
+            if (!this.running.get()) {
+                break;
+            }
+
+            this.currentLevel.set(levelResourceKey);
+            this.indexLevelDatabase(levelResourceKey);
+        }
+
+        this.running.set(false);
+    }
+
+    private void indexLevelDatabase(final ResourceKey<Level> level) {
+        final Path dimensionPath = this.levelAccess.getDimensionPath(level);
+
+        if (!Files.isRegularFile(dimensionPath.resolve("chunks" + CesiumMod.getFileEnding()))) {
+            return;
+        }
+
+        final IDBInstance dbInstance = CesiumMod.openWorldDB(dimensionPath);
+
+        this.status.set("Indexing chunks of " + level.location().getPath());
+
+        try {
+            final IChunkKVDatabase<CompoundTag> chunks = dbInstance.getDatabase(WorldDatabaseSpecs.CHUNK_DATA);
+            final IChunkKVDatabase<ChunkMetadata> metadata = dbInstance.getDatabase(WorldDatabaseSpecs.CHUNK_METADATA);
+            final IChunkKVTransaction<ChunkMetadata> transaction = dbInstance.getTransaction(WorldDatabaseSpecs.CHUNK_METADATA);
+
+            final LongList keys = new LongArrayList();
+
+            try (final ICloseableLongIterator crs = chunks.getLongIterator()) {
+                while (crs.hasNext()) {
+                    keys.add(crs.nextLong());
+                }
+            }
+
+            this.totalElements.set(keys.size());
+            this.currentElement.set(0);
+
+            for (int start = 0; this.running.get() && start < keys.size(); start += BATCH_SIZE) {
+                final int end = Math.min(start + BATCH_SIZE, keys.size());
+
+                for (int index = start; index < end; index++) {
+                    final long chunkPos = keys.getLong(index);
+
+                    if (metadata.getValue(chunkPos) != null) {
+                        continue;
+                    }
+
+                    // The chunk is not written again, so the stored size is taken from the database here
+                    final ChunkMetadata record = chunks.visitBytes(chunkPos, stored -> {
+                        final byte[] bytes = chunks.getCompressor().decompress(stored);
+
+                        return ChunkMetadata.of(chunks.getValueSerializer().deserialize(bytes), bytes.length, stored.capacity());
+                    });
+
+                    if (record != null) {
+                        transaction.add(chunkPos, record);
+                    }
+                }
+
+                dbInstance.flushChanges();
+                this.currentElement.addAndGet(end - start);
+            }
+        } catch (final Throwable t) {
+            throw new RuntimeException("Failed to index level.", t);
+        } finally {
+            dbInstance.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package de.yamayaki.cesium.maintenance.tasks;
+
+import de.yamayaki.cesium.CesiumMod;
+import de.yamayaki.cesium.api.database.DatabaseSpec;
+import de.yamayaki.cesium.api.database.ICloseableIterator;
+import de.yamayaki.cesium.api.database.IDBInstance;
+import de.yamayaki.cesium.api.database.IKVDatabase;
+import de.yamayaki.cesium.api.database.IKVTransaction;
+import de.yamayaki.cesium.api.database.KeyFormat;
+import de.yamayaki.cesium.maintenance.AbstractTask;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.storage.LevelStorageSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites level databases that still use the legacy key layout into the current one. Values are copied as they are
+ * stored, both databases are opened with the same compression settings.
+ */
+public class DatabaseMigrate extends AbstractTask {
+    private static final int BATCH_SIZE = 1024;
+
+    public DatabaseMigrate(final LevelStorageSource.LevelStorageAccess levelStorageAccess, final RegistryAccess registryAccess) {
+        super("Migrate", levelStorageAccess, registryAccess);
+    }
+
+    @Override
+    protected void runTasks() {
+        for (final ResourceKey<Level> levelResourceKey : this.levels) {
+            if (!this.running.get()) {
+                break;
+            }
+
+            this.currentLevel.set(levelResourceKey);
+            this.migrateLevelDatabase(levelResourceKey);
+        }
+
+        this.running.set(false);
+    }
+
+    private void migrateLevelDatabase(final ResourceKey<Level> level) {
+        final Path dimensionPath = this.levelAccess.getDimensionPath(level);
+
+        final Path originalPath = dimensionPath.resolve("chunks" + CesiumMod.getFileEnding());
+        final Path copyPath = dimensionPath.resolve("chunks.migrate" + CesiumMod.getFileEnding());
+
+        if (!Files.isRegularFile(originalPath)) {
+            return;
+        }
+
+        final IDBInstance source = CesiumMod.openWorldDB(dimensionPath);
+
+        if (source.keyFormat() == KeyFormat.CURRENT) {
+            source.close();
+            return;
+        }
+
+        this.status.set("Migrating level data for " + level.location().getPath());
+
+        try {
+            deleteDatabase(copyPath);
+
+            final IDBInstance target = CesiumMod.openWorldDB(dimensionPath, "chunks.migrate");
+
+            try {
+                for (final DatabaseSpec<?, ?> spec : CesiumMod.worldSpecs()) {
+                    this.copyDatabase(spec, source, target);
+                }
+            } finally {
+                target.close();
+            }
+
+            source.close();
+
+            if (this.running.get()) {
+                Files.move(copyPath, originalPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            deleteDatabase(copyPath);
+        } catch (final Throwable t) {
+            throw new RuntimeException("Failed to migrate level.", t);
+        } finally {
+            if (!source.closed()) {
+                source.close();
+            }
+        }
+    }
+
+    private <K, V> void copyDatabase(final DatabaseSpec<K, V> spec, final IDBInstance source, final IDBInstance target) throws Exception {
+        final IKVDatabase<K, V> database = source.getDatabase(spec);
+        final IKVTransaction<K, V> transaction = target.getTransaction(spec);
+
+        final List<K> keys = new ArrayList<>();
+
+        try (final ICloseableIterator<K> crs = database.getIterator()) {
+            while (crs.hasNext()) {
+                keys.add(crs.next());
+            }
+        }
+
+        this.totalElements.set(keys.size());
+        this.currentElement.set(0);
+
+        for (int start = 0; this.running.get() && start < keys.size(); start += BATCH_SIZE) {
+            final List<K> batch = keys.subList(start, Math.min(start + BATCH_SIZE, keys.size()));
+
+            for (final K key : batch) {
+                // Copied out of the memory map before the visitor returns
+                database.visitBytes(key, stored -> {
+                    transaction.addStored(key, stored);
+                    return null;
+                });
+            }
+
+            target.flushChanges();
+            this.currentElement.addAndGet(batch.size());
+        }
+    }
+
+    private static void deleteDatabase(final Path path) throws Exception {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(path.resolveSibling(path.getFileName() + "-lock"));
+    }
+}
@@ -2,6 +2,7 @@ package de.yamayaki.cesium.mixin.core;
 
 import de.yamayaki.cesium.CesiumMod;
 import de.yamayaki.cesium.api.accessor.DatabaseSource;
+import de.yamayaki.cesium.api.database.IDBInstance;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
@@ -14,7 +15,10 @@ import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -33,28 +37,70 @@ public abstract class MixinMinecraftServer {
     @Shadow
     public abstract PlayerList getPlayerList();
 
+    // One thread per commit that may be in flight, the next commit is prepared while the previous one is written
     @Unique
-    private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "Cesium-Async-Save"));
+    private final ExecutorService saveExecutor = Executors.newFixedThreadPool(CesiumMod.config().commitPipelineDepth(), r -> new Thread(r, "Cesium-Async-Save"));
 
     @Unique
-    private CompletableFuture<Void> saveFuture = null;
+    private final List<CompletableFuture<Void>> saveFutures = new ArrayList<>();
 
     @Inject(method = "tickServer", at = @At("RETURN"))
     public void cesium$saveData(BooleanSupplier booleanSupplier, CallbackInfo ci) {
-        if (this.saveFuture != null && !this.saveFuture.isDone()) {
+        this.saveFutures.removeIf(CompletableFuture::isDone);
+
+        if (this.saveFutures.size() >= CesiumMod.config().commitPipelineDepth()) {
             return;
         }
 
         if (CesiumMod.config().saveAfterTick()) {
             this.cesium$autosaveData();
+            this.cesium$requestCommit();
+        }
+
+        final List<IDBInstance> databases = this.cesium$databases();
+
+        if (databases.stream().noneMatch(IDBInstance::commitDue)) {
+            return;
         }
 
-        this.saveFuture = CompletableFuture.runAsync(() -> {
-            ((DatabaseSource) this.playerList).cesium$getStorage().flushChanges();
-            for (final ServerLevel level : this.levels.values()) {
-                ((DatabaseSource) level).cesium$getStorage().flushChanges();
+        // Once one database is due all of them are committed, so player and world data stay in step
+        this.saveFutures.add(CompletableFuture.runAsync(() -> {
+            for (final IDBInstance database : databases) {
+                database.flushChanges();
             }
-        }, this.saveExecutor);
+        }, this.saveExecutor));
+    }
+
+    @Inject(method = "saveAllChunks", at = @At("RETURN"))
+    public void cesium$commitAfterSave(boolean suppressLog, boolean flush, boolean forced, CallbackInfoReturnable<Boolean> cir) {
+        if (!flush) {
+            this.cesium$requestCommit();
+            return;
+        }
+
+        // Like vanilla does for region files, saving with flush (e.g. "/save-all flush") waits until all data is durable
+        CompletableFuture.allOf(this.cesium$databases().stream()
+                .map(IDBInstance::flushAsync)
+                .toArray(CompletableFuture[]::new)).join();
+    }
+
+    @Unique
+    private void cesium$requestCommit() {
+        for (final IDBInstance database : this.cesium$databases()) {
+            database.requestCommit();
+        }
+    }
+
+    @Unique
+    private List<IDBInstance> cesium$databases() {
+        final List<IDBInstance> databases = new ArrayList<>(this.levels.size() + 1);
+        databases.add(((DatabaseSource) this.playerList).cesium$getStorage());
+
+        for (final ServerLevel level : this.levels.values()) {
+            databases.add(((DatabaseSource) level).cesium$getStorage());
+        }
+
+        return databases;
     }
 
     @Unique
@@ -70,8 +116,8 @@ public abstract class MixinMinecraftServer {
 
     @Inject(method = "stopServer", at = @At("TAIL"))
     public void cesium$stopThread(CallbackInfo ci) {
-        if (this.saveFuture != null) {
-            this.saveFuture.join();
+        for (final CompletableFuture<Void> saveFuture : this.saveFutures) {
+            saveFuture.join();
         }
 
         this.saveExecutor.shutdown();
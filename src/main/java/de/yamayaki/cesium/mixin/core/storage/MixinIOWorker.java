@@ -3,8 +3,11 @@ package de.yamayaki.cesium.mixin.core.storage;
 import de.yamayaki.cesium.api.accessor.DatabaseActions;
 import de.yamayaki.cesium.api.accessor.DatabaseSetter;
 import de.yamayaki.cesium.api.accessor.SpecificationSetter;
+import de.yamayaki.cesium.api.database.ChunkDatabaseSpec;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
 import de.yamayaki.cesium.api.database.DatabaseSpec;
 import de.yamayaki.cesium.api.database.IDBInstance;
+import de.yamayaki.cesium.common.spec.WorldDatabaseSpecs;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.StreamTagVisitor;
 import net.minecraft.world.level.ChunkPos;
@@ -14,13 +17,21 @@ import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.Unique;
+import org.slf4j.Logger;
 import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 @Mixin(IOWorker.class)
 public abstract class MixinIOWorker implements DatabaseSetter, SpecificationSetter, DatabaseActions {
+    @Shadow
+    @Final
+    private static Logger LOGGER;
+
     @Shadow
     @Final
     private RegionFileStorage storage;
@@ -29,7 +40,7 @@ public abstract class MixinIOWorker implements DatabaseSetter, SpecificationSett
     private IDBInstance database;
 
     @Unique
-    private DatabaseSpec<ChunkPos, CompoundTag> databaseSpec;
+    private ChunkDatabaseSpec<CompoundTag> databaseSpec;
 
     @Unique
     private boolean isCesium = false;
@@ -49,7 +60,7 @@ public abstract class MixinIOWorker implements DatabaseSetter, SpecificationSett
         if (this.isCesium) {
             return this.database
                     .getDatabase(this.databaseSpec)
-                    .getValue(chunkPos);
+                    .getValue(chunkPos.toLong());
         } else {
             return instance.read(chunkPos);
         }
@@ -88,11 +99,31 @@ public abstract class MixinIOWorker implements DatabaseSetter, SpecificationSett
             )
     )
     private void cesium$flush(RegionFileStorage instance) throws IOException {
+        // Cesium databases are flushed asynchronously, see cesium$synchronize
         if (!this.isCesium) {
             instance.flush();
         }
     }
 
+    /**
+     * @author Yamayaki
+     * @see IOWorker#synchronize(boolean)
+     */
+    @Inject(method = "synchronize", at = @At("RETURN"), cancellable = true)
+    private void cesium$synchronize(boolean flush, CallbackInfoReturnable<CompletableFuture<Void>> cir) {
+        if (!this.isCesium || !flush) {
+            return;
+        }
+
+        // Completes once the stored chunks are durable, without blocking the worker thread meanwhile
+        cir.setReturnValue(cir.getReturnValue()
+                .thenCompose(unused -> this.database.flushAsync())
+                .exceptionally(throwable -> {
+                    LOGGER.warn("Failed to synchronize chunks", throwable);
+                    return null;
+                }));
+    }
+
     @Redirect(
             method = "runStore",
             at = @At(
@@ -102,14 +133,37 @@ public abstract class MixinIOWorker implements DatabaseSetter, SpecificationSett
     )
     private void cesium$write(RegionFileStorage instance, ChunkPos chunkPos, CompoundTag compoundTag) throws IOException {
         if (this.isCesium) {
-            this.database
-                    .getTransaction(this.databaseSpec)
-                    .add(chunkPos, compoundTag);
+            if (this.databaseSpec == WorldDatabaseSpecs.CHUNK_DATA) {
+                this.cesium$writeChunk(chunkPos.toLong(), compoundTag);
+            } else {
+                this.database
+                        .getTransaction(this.databaseSpec)
+                        .add(chunkPos.toLong(), compoundTag);
+            }
         } else {
             instance.write(chunkPos, compoundTag);
         }
     }
 
+    @Unique
+    private void cesium$writeChunk(final long chunkPos, final CompoundTag compoundTag) throws IOException {
+        // Serialized here, so the metadata can record the size of the chunk
+        final byte[] bytes = compoundTag != null ? this.database.getDatabase(WorldDatabaseSpecs.CHUNK_DATA).getValueSerializer().serialize(compoundTag) : null;
+
+        final ChunkMetadata metadata = bytes != null ? ChunkMetadata.of(compoundTag, bytes.length) : null;
+
+        // The stored size is patched into the record when the chunk is committed, both have to be in the same commit
+        this.database.addAtomically(() -> {
+            this.database
+                    .getTransaction(WorldDatabaseSpecs.CHUNK_METADATA)
+                    .add(chunkPos, metadata);
+
+            this.database
+                    .getTransaction(WorldDatabaseSpecs.CHUNK_DATA)
+                    .addBytes(chunkPos, bytes);
+        });
+    }
+
     @Redirect(method = "close", at = @At(value = "INVOKE", target = "Lnet/minecraft/world/level/chunk/storage/RegionFileStorage;close()V"))
     private void cesium$close(RegionFileStorage instance) throws IOException {
         if (!this.isCesium) {
@@ -139,6 +193,6 @@ public abstract class MixinIOWorker implements DatabaseSetter, SpecificationSett
     @Override
     @SuppressWarnings("unchecked")
     public void cesium$setSpec(DatabaseSpec<?, ?> databaseSpec) {
-        this.databaseSpec = (DatabaseSpec<ChunkPos, CompoundTag>) databaseSpec;
+        this.databaseSpec = (ChunkDatabaseSpec<CompoundTag>) databaseSpec;
     }
 }
@@ -5,8 +5,8 @@ import de.yamayaki.cesium.CesiumMod;
 import de.yamayaki.cesium.api.accessor.DatabaseActions;
 import de.yamayaki.cesium.api.accessor.DatabaseSetter;
 import de.yamayaki.cesium.api.accessor.SpecificationSetter;
-import de.yamayaki.cesium.api.database.DatabaseSpec;
-import de.yamayaki.cesium.api.database.ICloseableIterator;
+import de.yamayaki.cesium.api.database.ChunkDatabaseSpec;
+import de.yamayaki.cesium.api.database.ICloseableLongIterator;
 import de.yamayaki.cesium.api.database.IDBInstance;
 import de.yamayaki.cesium.common.spec.WorldDatabaseSpecs;
 import net.minecraft.nbt.CompoundTag;
@@ -38,7 +38,7 @@ public abstract class MixinWorldUpgrader {
     private IDBInstance tmpDatabase;
 
     @Unique
-    private DatabaseSpec<ChunkPos, CompoundTag> tmpSpec;
+    private ChunkDatabaseSpec<CompoundTag> tmpSpec;
 
     @Unique
     private double chunkCount = 0;
@@ -88,7 +88,7 @@ public abstract class MixinWorldUpgrader {
         IDBInstance dbInstance = CesiumMod.openWorldDB(path.getParent());
         tmpDatabase = dbInstance;
 
-        DatabaseSpec<ChunkPos, CompoundTag> databaseSpec = switch (regionStorageInfo.type()) {
+        ChunkDatabaseSpec<CompoundTag> databaseSpec = switch (regionStorageInfo.type()) {
             case "entities" -> WorldDatabaseSpecs.ENTITY;
             case "poi" -> WorldDatabaseSpecs.POI;
             case "chunk" -> WorldDatabaseSpecs.CHUNK_DATA;
@@ -106,9 +106,9 @@ public abstract class MixinWorldUpgrader {
     public List<WorldUpgrader.FileToUpgrade> cesiumGetChunks(RegionStorageInfo regionStorageInfo, Path path) {
         final Map<String, List<ChunkPos>> regionList = new HashMap<>();
 
-        try (final ICloseableIterator<ChunkPos> crs = tmpDatabase.getDatabase(tmpSpec).getIterator()) {
+        try (final ICloseableLongIterator crs = tmpDatabase.getDatabase(tmpSpec).getLongIterator()) {
             while (crs.hasNext()) {
-                final ChunkPos chunkPos = crs.next();
+                final ChunkPos chunkPos = new ChunkPos(crs.nextLong());
                 final String regionKey = chunkPos.getRegionX() + "." + chunkPos.getRegionZ();
 
                 if (!regionList.containsKey(regionKey)) {
@@ -3,7 +3,10 @@ package de.yamayaki.cesium.mixin.gui;
 import com.llamalad7.mixinextras.sugar.Local;
 import de.yamayaki.cesium.CesiumMod;
 import de.yamayaki.cesium.api.accessor.DatabaseSource;
+import de.yamayaki.cesium.api.database.BacklogStats;
+import de.yamayaki.cesium.api.database.CacheStats;
 import de.yamayaki.cesium.api.database.IDBInstance;
+import de.yamayaki.cesium.common.spec.WorldDatabaseSpecs;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.components.DebugScreenOverlay;
 import net.minecraft.resources.ResourceKey;
@@ -57,6 +60,21 @@ public class MixinDebugScreenOverlay {
         list.add("ms_branch_pages: " + ms_branch_pages);
         list.add("ms_leaf_pages: " + ms_leaf_pages);
         list.add("ms_entries: " + ms_entries);
+
+        final BacklogStats backlog = dbInstance.getBacklog();
+
+        list.add(String.format("backlog: %d KB pending (%d entries), %d KB committing (%d commits), %d stalls",
+                backlog.pendingBytes() / 1024, backlog.pendingEntries(),
+                backlog.committingBytes() / 1024, backlog.committingSnapshots(), backlog.stalls()));
+        list.add("backlog_off_heap: " + backlog.offHeapBytes() / 1024 + " KB");
+
+        final CacheStats cacheStats = dbInstance.getDatabase(WorldDatabaseSpecs.CHUNK_DATA).getCacheStats();
+
+        if (cacheStats != null) {
+            list.add(String.format("chunk_cache: %d/%d MB, %d hits, %d misses, %d evictions",
+                    cacheStats.sizeBytes() / (1024 * 1024), cacheStats.maxBytes() / (1024 * 1024),
+                    cacheStats.hits(), cacheStats.misses(), cacheStats.evictions()));
+        }
     }
 
 }
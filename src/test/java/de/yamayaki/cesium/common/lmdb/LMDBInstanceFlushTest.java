@@ -0,0 +1,77 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.CesiumConfig;
+import de.yamayaki.cesium.CesiumMod;
+import de.yamayaki.cesium.api.database.DatabaseSpec;
+import org.agrona.DirectBuffer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lmdbjava.Txn;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LMDBInstanceFlushTest {
+    private static final DatabaseSpec<String, String> SPEC = new DatabaseSpec<>("test", String.class, String.class, 1024 * 1024, false);
+
+    @TempDir
+    Path directory;
+
+    // The compressors read the config of the mod, which is only set once it is initialized
+    @BeforeAll
+    public static void setupConfig() throws ReflectiveOperationException {
+        final Field config = CesiumMod.class.getDeclaredField("cesiumConfig");
+        config.setAccessible(true);
+        config.set(null, new CesiumConfig());
+    }
+
+    @Test
+    public void flushWaitsForCommitOfOtherThread() throws Exception {
+        final LMDBInstance instance = new LMDBInstance(this.directory.resolve("test.db"), new DatabaseSpec<?, ?>[]{SPEC},
+                LoggerFactory.getLogger(LMDBInstanceFlushTest.class), new CesiumConfig());
+
+        try {
+            instance.getTransaction(SPEC).add("key", "value");
+
+            final CompletableFuture<Void> first;
+            final Thread second = new Thread(instance::flushChanges);
+
+            // Holding the only write transaction keeps the first commit from landing
+            try (final Txn<DirectBuffer> blocker = instance.env.txnWrite()) {
+                first = instance.flushAsync();
+
+                // The snapshot is published once it is prepared, only then the flush under test may start
+                while (instance.getBacklog().committingSnapshots() == 0) {
+                    Thread.onSpinWait();
+                }
+
+                // Nothing is left to prepare for the second flush, it still has to wait for the first commit
+                second.start();
+
+                while (second.getState() != Thread.State.WAITING && second.getState() != Thread.State.TERMINATED) {
+                    Thread.onSpinWait();
+                }
+
+                assertTrue(second.isAlive());
+                assertFalse(first.isDone());
+            }
+
+            second.join();
+
+            assertEquals(0, instance.getBacklog().committingSnapshots());
+            assertEquals("value", instance.getDatabase(SPEC).getValue("key"));
+
+            first.get(10, TimeUnit.SECONDS);
+        } finally {
+            instance.close();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package de.yamayaki.cesium.common.lmdb;
+
+import de.yamayaki.cesium.CesiumConfig;
+import de.yamayaki.cesium.CesiumMod;
+import de.yamayaki.cesium.api.database.ChunkMetadata;
+import de.yamayaki.cesium.api.database.DatabaseSpec;
+import de.yamayaki.cesium.common.spec.WorldDatabaseSpecs;
+import net.minecraft.world.level.ChunkPos;
+import org.agrona.DirectBuffer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LMDBInstanceMetadataTest {
+    @TempDir
+    Path directory;
+
+    // The compressors read the config of the mod, which is only set once it is initialized
+    @BeforeAll
+    public static void setupConfig() throws ReflectiveOperationException {
+        final Field config = CesiumMod.class.getDeclaredField("cesiumConfig");
+        config.setAccessible(true);
+        config.set(null, new CesiumConfig());
+    }
+
+    @Test
+    public void metadataIsCommittedWithItsChunk() throws Exception {
+        final LMDBInstance instance = new LMDBInstance(this.directory.resolve("chunks.db"),
+                new DatabaseSpec<?, ?>[]{WorldDatabaseSpecs.CHUNK_METADATA, WorldDatabaseSpecs.CHUNK_DATA},
+                LoggerFactory.getLogger(LMDBInstanceMetadataTest.class), new CesiumConfig());
+
+        try {
+            final long chunkPos = ChunkPos.asLong(3, -7);
+            final byte[] chunk = new byte[4096];
+
+            final Thread flush = new Thread(instance::flushChanges);
+
+            instance.addAtomically(() -> {
+                instance.getTransaction(WorldDatabaseSpecs.CHUNK_METADATA)
+                        .add(chunkPos, new ChunkMetadata("minecraft:full", 1, 0L, 0L, chunk.length, 0));
+
+                // The flush has to wait for the snapshot until the chunk was added as well
+                flush.start();
+
+                while (flush.getState() != Thread.State.WAITING && flush.getState() != Thread.State.TERMINATED) {
+                    Thread.onSpinWait();
+                }
+
+                instance.getTransaction(WorldDatabaseSpecs.CHUNK_DATA)
+                        .addBytes(chunkPos, chunk);
+            });
+
+            flush.join();
+
+            final ChunkMetadata metadata = instance.getDatabase(WorldDatabaseSpecs.CHUNK_METADATA).getValue(chunkPos);
+            final int storedSize = instance.getDatabase(WorldDatabaseSpecs.CHUNK_DATA).visitBytes(chunkPos, DirectBuffer::capacity);
+
+            assertEquals(storedSize, metadata.storedSize());
+        } finally {
+            instance.close();
+        }
+    }
+}